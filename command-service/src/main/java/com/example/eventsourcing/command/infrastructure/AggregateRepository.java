@@ -38,10 +38,10 @@ public class AggregateRepository<T extends AggregateRoot> {
         
         try {
             // 1. Salva eventos no Event Store
-            eventStore.saveEvents(aggregate);
+            List<EventStoreEntity> storedEvents = eventStore.saveEvents(aggregate);
             
             // 2. Publica eventos no Outbox para Debezium
-            outboxService.publishEvents(events);
+            outboxService.publishEvents(events, storedEvents);
             
             // 3. Cria snapshot se necessário
             if (shouldCreateSnapshot(aggregate)) {
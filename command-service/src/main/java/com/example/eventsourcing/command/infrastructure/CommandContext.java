@@ -0,0 +1,53 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import com.example.eventsourcing.command.domain.Event;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Metadados de correlação do comando em execução (thread corrente), gravados em
+ * event_metadata de cada evento e propagados pelo outbox até os headers do Kafka.
+ * O início do comando é um instante de relógio (não nanoTime), para poder ser
+ * comparado com os timestamps do CDC e do query-service.
+ */
+public record CommandContext(String correlationId, String causationId, String requestId, Instant startedAt) {
+
+    public static final String CORRELATION_ID = "correlationId";
+    public static final String CAUSATION_ID = "causationId";
+    public static final String REQUEST_ID = "requestId";
+    public static final String COMMAND_STARTED_AT = "commandStartedAt";
+
+    private static final ThreadLocal<CommandContext> CURRENT = new ThreadLocal<>();
+
+    public static Optional<CommandContext> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public static void set(CommandContext context) {
+        CURRENT.set(context);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Metadados do evento somados aos do comando corrente; null se não houver nenhum.
+     */
+    public static Map<String, Object> metadataFor(Event event) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        if (event.getMetadata() != null) {
+            metadata.putAll(event.getMetadata());
+        }
+        current().ifPresent(context -> {
+            metadata.putIfAbsent(CORRELATION_ID, context.correlationId());
+            metadata.putIfAbsent(CAUSATION_ID, context.causationId());
+            metadata.putIfAbsent(REQUEST_ID, context.requestId());
+            metadata.putIfAbsent(COMMAND_STARTED_AT, context.startedAt().toString());
+        });
+        return metadata.isEmpty() ? null : metadata;
+    }
+}
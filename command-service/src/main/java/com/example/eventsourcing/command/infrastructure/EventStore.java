@@ -24,14 +24,15 @@ public class EventStore {
     private final ObjectMapper objectMapper;
     
     /**
-     * Salva os eventos de um agregado no Event Store
+     * Salva os eventos de um agregado no Event Store e devolve as linhas gravadas
+     * (com o id = posição global), na mesma ordem dos eventos
      */
     @Transactional
-    public void saveEvents(AggregateRoot aggregate) {
+    public List<EventStoreEntity> saveEvents(AggregateRoot aggregate) {
         List<Event> events = aggregate.getUncommittedEvents();
         if (events.isEmpty()) {
             log.debug("No uncommitted events to save for aggregate {}", aggregate.getId());
-            return;
+            return List.of();
         }
         
         List<EventStoreEntity> entities = events.stream()
@@ -48,17 +49,18 @@ public class EventStore {
                             new TypeReference<Map<String, Object>>() {});
                     entity.setEventData(eventData);
                     
-                    // Metadata (se houver)
-                    // entity.setEventMetadata(event.getMetadata());
+                    // Metadata do evento + correlação do comando corrente
+                    entity.setEventMetadata(CommandContext.metadataFor(event));
                     
                     return entity;
                 })
                 .collect(Collectors.toList());
         
-        eventStoreRepository.saveAll(entities);
+        List<EventStoreEntity> saved = eventStoreRepository.saveAll(entities);
         aggregate.markEventsAsCommitted();
         
         log.debug("Saved {} events for aggregate {}", events.size(), aggregate.getId());
+        return saved;
     }
     
     /**
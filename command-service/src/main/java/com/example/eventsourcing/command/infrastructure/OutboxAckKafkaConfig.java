@@ -0,0 +1,51 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+/**
+ * Container factory do {@link OutboxAckListener}. Um lote de ACKs que falha (banco
+ * indisponível) é repetido com backoff e, esgotadas as tentativas, publicado em
+ * &lt;tópico&gt;-dlt em vez de ser descartado. Os eventos desses ACKs já foram
+ * projetados, mas ficam PENDING no outbox: o Debezium não os publica de novo (e o relay
+ * do OutboxService só roda com app.outbox.relay.enabled), então nada os confirma
+ * sozinho. Eles aparecem no gauge do PENDING mais antigo e seguram o DROP da partição;
+ * a recuperação é republicar o DLT no tópico de ACKs ou confirmar os ids pelo
+ * POST /api/admin/outbox/processed.
+ */
+@Configuration
+public class OutboxAckKafkaConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> ackKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<String, String> kafkaTemplate,
+            @Value("${app.outbox.ack.retry.attempts:5}") int attempts,
+            @Value("${app.outbox.ack.retry.delay-ms:1000}") long delayMs,
+            @Value("${app.outbox.ack.retry.max-delay-ms:30000}") long maxDelayMs,
+            @Value("${app.outbox.ack.dlt-suffix:-dlt}") String dltSuffix) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(delayMs, 2.0);
+        backOff.setMaxInterval(maxDelayMs);
+        backOff.setMaxAttempts(attempts - 1);
+
+        DeadLetterPublishingRecoverer deadLetter = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + dltSuffix, -1));
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetter, backOff));
+        return factory;
+    }
+}
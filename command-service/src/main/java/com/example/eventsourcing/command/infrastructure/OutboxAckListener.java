@@ -0,0 +1,48 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Consome os ACKs publicados pelo query-service no tópico de ACKs e aplica cada
+ * poll no event_outbox com um único UPDATE. Falhas são repetidas e depois vão para
+ * o DLT ({@link OutboxAckKafkaConfig}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxAckListener {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxMetricsService outboxMetricsService;
+
+    @KafkaListener(
+            topics = "${app.outbox.ack.topic:outbox.acks}",
+            groupId = "${app.outbox.ack.group-id:command-service-outbox-ack}",
+            batch = "true",
+            containerFactory = "ackKafkaListenerContainerFactory",
+            autoStartup = "${app.outbox.ack.consumer-enabled:true}"
+    )
+    public void onAcks(List<ConsumerRecord<String, String>> records) {
+        Set<UUID> ids = new LinkedHashSet<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                ids.add(UUID.fromString(record.key()));
+            } catch (Exception e) {
+                log.warn("⚠️ ACK inválido ignorado: key={}", record.key());
+            }
+        }
+
+        int updated = outboxEventRepository.markAsProcessed(ids);
+        outboxMetricsService.recordProcessed(updated);
+        log.debug("✅ {} ACKs recebidos, {} outbox events marcados como PROCESSED", ids.size(), updated);
+    }
+}
@@ -30,7 +30,15 @@ public class OutboxEventEntity {
     @Column(name = "event_type", nullable = false)
     private String eventType;
     
-    @Column(name = "event_data", nullable = false, columnDefinition = "jsonb")
+    @Column(name = "aggregate_version")
+    private Long aggregateVersion;
+
+    // posição global do evento no event_store
+    @Column(name = "event_store_id")
+    private Long eventStoreId;
+
+    // nulo com app.outbox.payload-mode=reference
+    @Column(name = "event_data", columnDefinition = "jsonb")
     @JdbcTypeCode(SqlTypes.JSON)
     private Map<String, Object> eventData;
     
@@ -10,10 +10,11 @@ import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, UUID> {
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, UUID>, OutboxEventRepositoryCustom {
 
     /**
      * Busca eventos por status ordenados por criação
@@ -38,25 +39,80 @@ public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity,
                       @Param("processedAt") Instant processedAt);
 
     /**
-     * Remove eventos processados antigos
+     * Data de criação do evento pendente mais antigo (index-only scan no índice parcial)
+     */
+    @Query(value = "SELECT MIN(created_at) FROM event_outbox WHERE status = 'PENDING'", nativeQuery = true)
+    Optional<Instant> findOldestPendingCreatedAt();
+
+    /**
+     * Total e created_at mais antigo por status numa única consulta agregada
+     * (usado apenas para reconciliar os contadores do OutboxMetricsService)
+     */
+    @Query("SELECT o.status AS status, COUNT(o) AS total, MIN(o.createdAt) AS oldestCreatedAt " +
+            "FROM OutboxEventEntity o GROUP BY o.status")
+    List<StatusSummary> summarizeByStatus();
+
+    /**
+     * Remove um lote limitado de eventos processados antigos da partição default.
+     * As partições diárias são removidas inteiras pelo OutboxPartitionMaintenanceJob.
      */
     @Modifying
     @Transactional
-    @Query("DELETE FROM OutboxEventEntity o WHERE o.status = :status AND o.processedAt < :cutoffDate")
-    int deleteOldProcessedEvents(@Param("status") OutboxEventEntity.OutboxStatus status,
-                                 @Param("cutoffDate") Instant cutoffDate);
+    @Query(value = "DELETE FROM event_outbox_default WHERE id IN (" +
+            "SELECT id FROM event_outbox_default " +
+            "WHERE status = 'PROCESSED' AND processed_at < :cutoffDate " +
+            "LIMIT :limit)", nativeQuery = true)
+    int deleteOldProcessedDefaultPartitionChunk(@Param("cutoffDate") Instant cutoffDate,
+                                                @Param("limit") int limit);
 
     /**
-     * Conta eventos por status
+     * Escolhe um lote de eventos pendentes para o relay, sem bloquear linhas. Um evento
+     * só entra se os PENDING anteriores do mesmo pedido também estão no lote (senão outra
+     * instância os pegou e a ordem seria quebrada) e se o advisory lock do pedido foi
+     * obtido: ele garante que os eventos de um pedido sejam publicados por uma única
+     * instância, na ordem, até o fim da transação. O CASE só tenta o lock nos pedidos que
+     * passaram pelo primeiro filtro. A ordem é (created_at, aggregate_version): eventos de
+     * um mesmo comando têm o mesmo created_at.
      */
-    long countByStatus(OutboxEventEntity.OutboxStatus status);
+    @Query(value = "WITH candidates AS MATERIALIZED (" +
+            "SELECT id, aggregate_id, created_at, aggregate_version FROM event_outbox " +
+            "WHERE status = 'PENDING' " +
+            "ORDER BY created_at, aggregate_version " +
+            "LIMIT :limit) " +
+            "SELECT c.id FROM candidates c " +
+            "WHERE CASE WHEN NOT EXISTS (SELECT 1 FROM event_outbox e " +
+            "WHERE e.aggregate_id = c.aggregate_id AND e.status = 'PENDING' " +
+            "AND (e.created_at, e.aggregate_version) < (c.created_at, c.aggregate_version) " +
+            "AND e.id NOT IN (SELECT id FROM candidates)) " +
+            "THEN pg_try_advisory_xact_lock(hashtext(CAST(c.aggregate_id AS text))) ELSE false END " +
+            "ORDER BY c.created_at, c.aggregate_version", nativeQuery = true)
+    List<UUID> selectRelayCandidates(@Param("limit") int limit);
 
     /**
-     * Busca eventos pendentes há muito tempo
+     * Bloqueia só os eventos escolhidos por {@link #selectRelayCandidates}. Com o advisory
+     * lock do pedido nenhum outro relay disputa essas linhas; o status é conferido de novo
+     * porque outra instância pode ter publicado o pedido entre as duas consultas.
      */
-    //@Query("SELECT o FROM OutboxEventEntity o WHERE o.status = 'PENDING' AND o.createdAt < :cutoff")
-    //List<OutboxEventEntity> findOldPendingEvents(@Param("cutoff") Instant cutoff);
+    @Query(value = "SELECT * FROM event_outbox " +
+            "WHERE id IN (:ids) AND status = 'PENDING' " +
+            "ORDER BY created_at, aggregate_version " +
+            "FOR UPDATE", nativeQuery = true)
+    List<OutboxEventEntity> lockPendingEvents(@Param("ids") List<UUID> ids);
+
+    /**
+     * Reserva um lote de eventos pendentes para o relay (na transação do chamador). As
+     * linhas que não entram no lote não ficam bloqueadas durante o envio ao Kafka.
+     */
+    default List<OutboxEventEntity> claimPendingEvents(int limit) {
+        List<UUID> ids = selectRelayCandidates(limit);
+        return ids.isEmpty() ? List.of() : lockPendingEvents(ids);
+    }
+
+    interface StatusSummary {
+        OutboxEventEntity.OutboxStatus getStatus();
+
+        long getTotal();
 
-    @Query("SELECT COUNT(o) FROM OutboxEventEntity o WHERE o.status = 'PENDING' AND o.createdAt < :cutoff")
-    long countOldPendingEvents(@Param("cutoff") Instant cutoff);
-}
\ No newline at end of file
+        Instant getOldestCreatedAt();
+    }
+}
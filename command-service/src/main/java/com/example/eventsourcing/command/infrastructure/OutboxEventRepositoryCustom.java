@@ -0,0 +1,12 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface OutboxEventRepositoryCustom {
+
+    /**
+     * Marca vários eventos como PROCESSED com um único UPDATE ... WHERE id = ANY(?)
+     */
+    int markAsProcessed(Collection<UUID> ids);
+}
@@ -0,0 +1,33 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+    private static final String MARK_AS_PROCESSED_SQL =
+            "UPDATE event_outbox SET status = 'PROCESSED', processed_at = now() " +
+            "WHERE id = ANY(?) AND status <> 'PROCESSED'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public int markAsProcessed(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // um único parâmetro array: o plano é o mesmo para qualquer tamanho de lote
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MARK_AS_PROCESSED_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        });
+    }
+}
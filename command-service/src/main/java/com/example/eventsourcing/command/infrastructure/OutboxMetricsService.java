@@ -1,39 +1,157 @@
 package com.example.eventsourcing.command.infrastructure;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Métricas do outbox expostas como gauges do Micrometer. Os contadores são mantidos
+ * em memória (incrementados na publicação e no ACK, sempre após o commit) e
+ * reconciliados periodicamente com uma única consulta GROUP BY status.
+ * <p>
+ * A idade do PENDING mais antigo não dá para derivar dos contadores (um ACK parcial
+ * não diz qual evento saiu), então é relida a cada oldest-pending-interval-ms com um
+ * MIN(created_at) no índice parcial de pendentes; o mesmo ciclo emite o alerta de
+ * pendentes antigos.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OutboxMetricsService {
 
+    private static final Duration STALE_PENDING = Duration.ofMinutes(15);
+
     private final OutboxEventRepository outboxEventRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<OutboxEventEntity.OutboxStatus, AtomicLong> countByStatus =
+            new EnumMap<>(OutboxEventEntity.OutboxStatus.class);
+    // epoch millis do PENDING mais antigo; -1 quando não há pendentes
+    private final AtomicLong oldestPendingMillis = new AtomicLong(-1);
 
-    @Scheduled(fixedDelay = 60000) // 1 minuto
-    public void logOutboxMetrics() {
-        Map<String, Long> metrics = new HashMap<>();
+    private Counter publishedCounter;
+    private Counter ackCounter;
 
+    @PostConstruct
+    void registerMeters() {
         for (OutboxEventEntity.OutboxStatus status : OutboxEventEntity.OutboxStatus.values()) {
-            long count = outboxEventRepository.countByStatus(status);
-            metrics.put(status.name(), count);
+            AtomicLong count = new AtomicLong();
+            countByStatus.put(status, count);
+            Gauge.builder("outbox.events", count, AtomicLong::get)
+                    .description("Outbox events by status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("outbox.pending.oldest.age", this, OutboxMetricsService::oldestPendingAgeSeconds)
+                .description("Age of the oldest pending outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        publishedCounter = Counter.builder("outbox.events.published")
+                .description("Events written to the outbox")
+                .register(meterRegistry);
+        ackCounter = Counter.builder("outbox.events.acked")
+                .description("Outbox events marked as PROCESSED")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Eventos gravados no outbox (contabilizados após o commit).
+     */
+    public void recordPublished(int count) {
+        TransactionHooks.afterCommit(() -> {
+            countByStatus.get(OutboxEventEntity.OutboxStatus.PENDING).addAndGet(count);
+            oldestPendingMillis.compareAndSet(-1, System.currentTimeMillis());
+            publishedCounter.increment(count);
+        });
+    }
+
+    /**
+     * Eventos marcados como PROCESSED (contabilizados após o commit).
+     */
+    public void recordProcessed(int count) {
+        if (count <= 0) {
+            return;
         }
+        TransactionHooks.afterCommit(() -> {
+            long pending = countByStatus.get(OutboxEventEntity.OutboxStatus.PENDING)
+                    .accumulateAndGet(count, (current, acked) -> Math.max(0, current - acked));
+            if (pending == 0) {
+                oldestPendingMillis.set(-1);
+            }
+            countByStatus.get(OutboxEventEntity.OutboxStatus.PROCESSED).addAndGet(count);
+            ackCounter.increment(count);
+        });
+    }
 
-        log.info("📊 Outbox Metrics: {}", metrics);
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reconcile();
+    }
+
+    /**
+     * Corrige o desvio dos contadores em memória (retenção, outras instâncias,
+     * alterações manuais) com uma única consulta agregada.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.metrics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        try {
+            Map<OutboxEventEntity.OutboxStatus, Long> totals = new EnumMap<>(OutboxEventEntity.OutboxStatus.class);
+            Instant oldestPending = null;
+            for (OutboxEventRepository.StatusSummary summary : outboxEventRepository.summarizeByStatus()) {
+                totals.put(summary.getStatus(), summary.getTotal());
+                if (summary.getStatus() == OutboxEventEntity.OutboxStatus.PENDING) {
+                    oldestPending = summary.getOldestCreatedAt();
+                }
+            }
+
+            countByStatus.forEach((status, count) -> count.set(totals.getOrDefault(status, 0L)));
+            oldestPendingMillis.set(oldestPending != null ? oldestPending.toEpochMilli() : -1);
+
+            warnIfStale(oldestPending);
+        } catch (Exception e) {
+            log.error("Error reconciling outbox metrics", e);
+        }
+    }
 
-        // Alertas para eventos pendentes há muito tempo
-        long oldPendingCount = outboxEventRepository.countOldPendingEvents(
-                Instant.now().minus(5, ChronoUnit.MINUTES));
+    /**
+     * Atualiza a idade do PENDING mais antigo (consulta barata, no índice parcial).
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.metrics.oldest-pending-interval-ms:30000}")
+    public void refreshOldestPending() {
+        try {
+            Instant oldestPending = outboxEventRepository.findOldestPendingCreatedAt().orElse(null);
+            oldestPendingMillis.set(oldestPending != null ? oldestPending.toEpochMilli() : -1);
+            warnIfStale(oldestPending);
+        } catch (Exception e) {
+            log.error("Error refreshing oldest pending outbox event", e);
+        }
+    }
 
-        if (oldPendingCount > 0) {
-            log.warn("⚠️  {} eventos pendentes há mais de 5 minutos", oldPendingCount);
+    // Alerta para eventos pendentes há muito tempo
+    private void warnIfStale(Instant oldestPending) {
+        if (oldestPending != null && oldestPending.isBefore(Instant.now().minus(STALE_PENDING))) {
+            log.warn("⚠️ Oldest pending outbox event waiting for {} minutes",
+                    Duration.between(oldestPending, Instant.now()).toMinutes());
         }
     }
-}
\ No newline at end of file
+
+    private double oldestPendingAgeSeconds() {
+        long oldest = oldestPendingMillis.get();
+        return oldest < 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.eventsourcing.command.infrastructure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Mantém as partições diárias de event_outbox: cria as próximas partições
+ * antecipadamente e remove (DETACH + DROP) as expiradas cujas linhas já foram
+ * todas processadas. A retenção vira uma operação de metadados.
+ * <p>
+ * CREATE ... PARTITION OF e DETACH PARTITION pegam ACCESS EXCLUSIVE no event_outbox
+ * (DETACH CONCURRENTLY não é permitido com partição default). Atrás de uma transação
+ * longa, esperar o bloqueio enfileiraria todos os INSERTs do outbox; por isso cada DDL
+ * roda com lock_timeout curto e é repetido algumas vezes antes de ficar para a
+ * próxima execução.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxPartitionMaintenanceJob {
+
+    private static final String PARTITION_PREFIX = "event_outbox_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.partition.premake-days:7}")
+    private int premakeDays;
+
+    @Value("${app.outbox.partition.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${app.outbox.partition.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    @Value("${app.outbox.partition.lock-attempts:5}")
+    private int lockAttempts;
+
+    @Value("${app.outbox.cleanup.chunk-size:1000}")
+    private int cleanupChunkSize;
+
+    @Value("${app.outbox.cleanup.pause-ms:200}")
+    private long cleanupPauseMs;
+
+    private Counter creationFailures;
+    private Counter dropLockTimeouts;
+
+    @PostConstruct
+    void initMetrics() {
+        creationFailures = Counter.builder("outbox.partition.creation.failures")
+                .description("Daily outbox partitions that could not be created (rows go to the default partition)")
+                .register(meterRegistry);
+        dropLockTimeouts = Counter.builder("outbox.partition.drop.lock.timeouts")
+                .description("Expired outbox partitions left for the next run because the lock was not acquired")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        createUpcomingPartitions();
+    }
+
+    @Scheduled(cron = "${app.outbox.partition.cron:0 15 * * * *}") // a cada hora
+    public void maintainPartitions() {
+        try {
+            createUpcomingPartitions();
+            dropExpiredPartitions();
+            purgeDefaultPartition();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Outbox partition maintenance interrupted");
+        } catch (Exception e) {
+            log.error("Error maintaining outbox partitions", e);
+        }
+    }
+
+    /**
+     * Cria as partições de hoje até hoje + premake-days (UTC).
+     */
+    void createUpcomingPartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i <= premakeDays; i++) {
+            LocalDate day = today.plusDays(i);
+            String sql = String.format(
+                    "CREATE TABLE IF NOT EXISTS %s PARTITION OF event_outbox FOR VALUES FROM ('%s') TO ('%s')",
+                    partitionName(day),
+                    day.atStartOfDay().toInstant(ZoneOffset.UTC),
+                    day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+            try {
+                withLockTimeout(sql);
+            } catch (Exception e) {
+                // ex.: a partição default já tem linhas nesse intervalo, ou o bloqueio não saiu
+                creationFailures.increment();
+                log.error("Failed to create outbox partition for {}", day, e);
+            }
+        }
+    }
+
+    /**
+     * Remove as partições cujo dia inteiro é anterior à retenção e que não têm
+     * mais linhas PENDING/FAILED.
+     */
+    void dropExpiredPartitions() {
+        LocalDate expiredBefore = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'event_outbox'::regclass AND c.relname LIKE 'event_outbox_p%' " +
+                        "ORDER BY c.relname",
+                String.class);
+
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(partition);
+            if (day == null || day.plusDays(1).isAfter(expiredBefore)) {
+                continue;
+            }
+
+            Boolean hasUnprocessed = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE status <> 'PROCESSED')",
+                    Boolean.class);
+            if (Boolean.TRUE.equals(hasUnprocessed)) {
+                log.warn("⚠️ Outbox partition {} expired but still has unprocessed events", partition);
+                continue;
+            }
+
+            try {
+                withLockTimeout("ALTER TABLE event_outbox DETACH PARTITION " + partition, "DROP TABLE " + partition);
+                log.info("🧹 Dropped expired outbox partition {}", partition);
+            } catch (PessimisticLockingFailureException e) {
+                dropLockTimeouts.increment();
+                log.warn("⚠️ Lock on event_outbox not acquired to drop {}, retrying on the next run", partition);
+            }
+        }
+    }
+
+    /**
+     * Executa os comandos numa transação com lock_timeout, tentando de novo até
+     * lock-attempts vezes se o bloqueio não sair a tempo.
+     */
+    private void withLockTimeout(String... statements) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                    for (String statement : statements) {
+                        jdbcTemplate.execute(statement);
+                    }
+                });
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= lockAttempts) {
+                    throw e;
+                }
+                log.debug("Lock on event_outbox not acquired (attempt {}/{})", attempt, lockAttempts);
+                try {
+                    Thread.sleep(lockTimeoutMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Linhas que caíram na partição default (fora das partições diárias) ainda
+     * são removidas em lotes, cada um na sua própria transação.
+     */
+    void purgeDefaultPartition() throws InterruptedException {
+        Instant cutoffDate = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxEventRepository.deleteOldProcessedDefaultPartitionChunk(cutoffDate, cleanupChunkSize);
+            total += deleted;
+            if (deleted == cleanupChunkSize && cleanupPauseMs > 0) {
+                Thread.sleep(cleanupPauseMs);
+            }
+        } while (deleted == cleanupChunkSize);
+
+        if (total > 0) {
+            log.info("🧹 Cleaned up {} old processed events from the default partition", total);
+        }
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+
+    private static LocalDate partitionDay(String partition) {
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package com.example.eventsourcing.command.infrastructure;
 
 import com.example.eventsourcing.command.domain.Event;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
@@ -27,20 +35,46 @@ public class OutboxService {
     private final OutboxEventRepository outboxEventRepository;
     private final ObjectMapper objectMapper;
     private final ApplicationEventPublisher eventPublisher; // ✅ Para eventos de domínio
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxMetricsService outboxMetricsService;
+    private final EventStoreRepository eventStoreRepository;
+
+    @Value("${app.outbox.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${app.outbox.relay.topic:outbox.public.event_outbox}")
+    private String relayTopic;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int relayBatchSize;
+
+    @Value("${app.outbox.relay.send-timeout-ms:10000}")
+    private long relaySendTimeoutMs;
 
     /**
-     * Publica eventos no outbox
+     * inline: event_data é copiado para o outbox; reference: o outbox guarda apenas
+     * event_store_id e o payload é lido do event_store (relay ou consumidor).
+     */
+    @Value("${app.outbox.payload-mode:inline}")
+    private String payloadMode;
+
+    /**
+     * Publica eventos no outbox. Recebe as linhas já gravadas no event_store (mesma
+     * ordem de events) para referenciar a posição global de cada evento.
      */
     @Transactional
-    public void publishEvents(List<Event> events) {
+    public void publishEvents(List<Event> events, List<EventStoreEntity> storedEvents) {
         try {
-            List<OutboxEventEntity> outboxEvents = events.stream()
-                    .map(this::toOutboxEventEntity)
-                    .toList();
+            List<OutboxEventEntity> outboxEvents = new ArrayList<>(events.size());
+            for (int i = 0; i < events.size(); i++) {
+                outboxEvents.add(toOutboxEventEntity(events.get(i), storedEvents.get(i)));
+            }
 
             List<OutboxEventEntity> savedEvents = outboxEventRepository.saveAll(outboxEvents);
 
             log.debug("Published {} events to outbox", events.size());
+            outboxMetricsService.recordPublished(savedEvents.size());
 
             // ✅ Opcional: Publica evento de domínio para notificar sobre novos eventos
             savedEvents.forEach(event -> {
@@ -54,41 +88,117 @@ public class OutboxService {
     }
 
     /**
-     * Processa eventos pendentes (executado pelo Debezium via CDC)
-     * Este método é principalmente para monitoramento e limpeza
+     * Relay opcional (alternativa ao Debezium): publica os eventos pendentes no Kafka
+     * no mesmo formato de envelope do CDC, em lotes, cada lote na sua transação.
      */
-    @Scheduled(fixedDelay = 30000) // 30 segundos
-    @Transactional
-    public void monitorOutboxEvents() { // ✅ Renomeado para monitor (não processa)
+    @Scheduled(fixedDelayString = "${app.outbox.polling-interval:1000}")
+    public void relayPendingEvents() {
+        if (!relayEnabled) {
+            return;
+        }
         try {
-            // Busca eventos pendentes para monitoramento
-            List<OutboxEventEntity> pendingEvents = outboxEventRepository
-                    .findByStatusOrderByCreatedAtAsc(OutboxEventEntity.OutboxStatus.PENDING);
-
-            if (!pendingEvents.isEmpty()) {
-                log.info("📊 Monitoring: Found {} pending events in outbox", pendingEvents.size());
-
-                // Alertas para eventos pendentes há muito tempo
-                pendingEvents.stream()
-                        .filter(event -> event.getCreatedAt()
-                                .isBefore(Instant.now().minus(15, ChronoUnit.MINUTES)))
-                        .findFirst()
-                        .ifPresent(oldEvent -> {
-                            log.warn("⚠️ Event {} pending for more than 15 minutes", oldEvent.getId());
-                        });
-            }
+            int published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published == relayBatchSize);
+        } catch (Exception e) {
+            log.error("Error relaying outbox events", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEventEntity> batch = outboxEventRepository.claimPendingEvents(relayBatchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Map<String, Object>> referencedPayloads = loadReferencedPayloads(batch);
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEventEntity event : batch) {
+            Map<String, Object> eventData = event.getEventData() != null
+                    ? event.getEventData()
+                    : referencedPayloads.get(event.getEventStoreId());
+            ProducerRecord<String, String> record = new ProducerRecord<>(
+                    relayTopic, event.getAggregateId().toString(), toEnvelope(event, eventData));
+            addMetadataHeaders(record, event.getEventMetadata());
+            sends.add(kafkaTemplate.send(record));
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(relaySendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while relaying outbox events", e);
+        } catch (Exception e) {
+            // rollback: os eventos continuam PENDING e serão reenviados (o consumidor deduplica)
+            throw new IllegalStateException("Failed to relay outbox events", e);
+        }
+
+        int processed = outboxEventRepository.markAsProcessed(batch.stream().map(OutboxEventEntity::getId).toList());
+        outboxMetricsService.recordProcessed(processed);
 
-            // Limpa eventos processados antigos (mais de 7 dias)
-            Instant cutoffDate = Instant.now().minus(7, ChronoUnit.DAYS);
-            int deletedCount = outboxEventRepository.deleteOldProcessedEvents(
-                    OutboxEventEntity.OutboxStatus.PROCESSED, cutoffDate);
+        log.debug("Relayed {} outbox events to {}", batch.size(), relayTopic);
+        return batch.size();
+    }
 
-            if (deletedCount > 0) {
-                log.info("🧹 Cleaned up {} old processed events", deletedCount);
+    /**
+     * Metadados de correlação também como headers, como faz o EventRouter do Debezium.
+     */
+    private static void addMetadataHeaders(ProducerRecord<String, String> record, Map<String, Object> metadata) {
+        if (metadata == null) {
+            return;
+        }
+        metadata.forEach((key, value) -> {
+            if (value != null) {
+                record.headers().add(key, value.toString().getBytes(StandardCharsets.UTF_8));
             }
+        });
+    }
 
+    /**
+     * Busca no event_store, numa única consulta, o payload das linhas gravadas
+     * em modo reference (sem event_data).
+     */
+    private Map<Long, Map<String, Object>> loadReferencedPayloads(List<OutboxEventEntity> batch) {
+        List<Long> ids = batch.stream()
+                .filter(event -> event.getEventData() == null && event.getEventStoreId() != null)
+                .map(OutboxEventEntity::getEventStoreId)
+                .toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Map<String, Object>> payloads = new HashMap<>();
+        eventStoreRepository.findAllById(ids).forEach(stored -> payloads.put(stored.getId(), stored.getEventData()));
+        return payloads;
+    }
+
+    /**
+     * Monta o mesmo envelope que o Debezium publica ("op" + "after"), com event_data
+     * como JSON em texto, para que o query-service não dependa da origem.
+     */
+    private String toEnvelope(OutboxEventEntity event, Map<String, Object> eventData) {
+        try {
+            Map<String, Object> after = new LinkedHashMap<>();
+            after.put("id", event.getId().toString());
+            after.put("aggregate_id", event.getAggregateId().toString());
+            after.put("aggregate_type", event.getAggregateType());
+            after.put("event_type", event.getEventType());
+            after.put("aggregate_version", event.getAggregateVersion());
+            after.put("event_store_id", event.getEventStoreId());
+            after.put("event_data", objectMapper.writeValueAsString(eventData));
+            after.put("event_metadata", event.getEventMetadata() != null
+                    ? objectMapper.writeValueAsString(event.getEventMetadata()) : null);
+            after.put("created_at", event.getCreatedAt().toString());
+            after.put("status", event.getStatus().name());
+
+            Map<String, Object> envelope = new LinkedHashMap<>();
+            envelope.put("op", "c");
+            envelope.put("after", after);
+            return objectMapper.writeValueAsString(envelope);
         } catch (Exception e) {
-            log.error("Error monitoring outbox events", e);
+            throw new IllegalStateException("Failed to serialize outbox event " + event.getId(), e);
         }
     }
 
@@ -113,20 +223,21 @@ public class OutboxService {
     }
 
     /**
-     * Converte Event para OutboxEventEntity
+     * Converte Event para OutboxEventEntity, reaproveitando o payload já serializado
+     * para o event_store
      */
-    private OutboxEventEntity toOutboxEventEntity(Event event) {
+    private OutboxEventEntity toOutboxEventEntity(Event event, EventStoreEntity stored) {
         try {
-            Map<String, Object> eventData = objectMapper.convertValue(event,
-                    new TypeReference<Map<String, Object>>() {});
-
             OutboxEventEntity entity = new OutboxEventEntity();
             entity.setAggregateId(event.getAggregateId());
             entity.setAggregateType(event.getAggregateType());
             entity.setEventType(event.getEventType());
-            entity.setEventData(eventData);
-            entity.setEventMetadata(event.getMetadata());
-            entity.setCreatedAt(event.getTimestamp());
+            entity.setAggregateVersion(stored.getVersion());
+            entity.setEventStoreId(stored.getId());
+            entity.setEventData(isReferenceMode() ? null : stored.getEventData());
+            entity.setEventMetadata(stored.getEventMetadata());
+            // momento real da gravação: o query-service mede a latência evento -> outbox
+            entity.setCreatedAt(Instant.now());
             entity.setStatus(OutboxEventEntity.OutboxStatus.PENDING);
 
             return entity;
@@ -136,6 +247,10 @@ public class OutboxService {
         }
     }
 
+    private boolean isReferenceMode() {
+        return "reference".equalsIgnoreCase(payloadMode);
+    }
+
     // ✅ Evento de domínio para notificar sobre novo evento no outbox
     @Getter
     @AllArgsConstructor
@@ -3,15 +3,18 @@ package com.example.eventsourcing.command.interfaces.admin;
 
 import com.example.eventsourcing.command.infrastructure.OutboxEventEntity;
 import com.example.eventsourcing.command.infrastructure.OutboxEventRepository;
+import com.example.eventsourcing.command.infrastructure.OutboxMetricsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -21,16 +24,32 @@ import java.util.UUID;
 public class OutboxController {
 
     private final OutboxEventRepository outboxEventRepository;
+    private final OutboxMetricsService outboxMetricsService;
 
     @PostMapping("/{id}/processed")
     public ResponseEntity<String> markAsProcessed(@PathVariable UUID id) {
         return outboxEventRepository.findById(id).map(event -> {
+            boolean wasProcessed = event.getStatus() == OutboxEventEntity.OutboxStatus.PROCESSED;
             event.setStatus(OutboxEventEntity.OutboxStatus.PROCESSED);
             event.setProcessedAt(Instant.now());
             outboxEventRepository.save(event);
+            if (!wasProcessed) {
+                outboxMetricsService.recordProcessed(1);
+            }
 
             log.info("✅ Outbox event {} marcado como PROCESSED", id);
             return ResponseEntity.ok("Evento marcado como PROCESSED: " + id);
         }).orElseGet(() -> ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    /**
+     * Confirma um lote de eventos com um único UPDATE.
+     */
+    @PostMapping("/processed")
+    public ResponseEntity<Integer> markAllAsProcessed(@RequestBody List<UUID> ids) {
+        int updated = outboxEventRepository.markAsProcessed(ids);
+        outboxMetricsService.recordProcessed(updated);
+        log.debug("✅ {} de {} outbox events marcados como PROCESSED", updated, ids.size());
+        return ResponseEntity.ok(updated);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.eventsourcing.command.web;
+
+import com.example.eventsourcing.command.infrastructure.CommandContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Abre o {@link CommandContext} de cada requisição: usa os headers de correlação
+ * recebidos (ou gera novos), coloca o correlationId no MDC e o devolve na resposta.
+ */
+@Component
+public class CommandContextFilter extends OncePerRequestFilter {
+
+    public static final String CORRELATION_HEADER = "X-Correlation-Id";
+    public static final String CAUSATION_HEADER = "X-Causation-Id";
+    public static final String REQUEST_HEADER = "X-Request-Id";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Instant startedAt = Instant.now();
+        String requestId = headerOrElse(request, REQUEST_HEADER, UUID.randomUUID().toString());
+        String correlationId = headerOrElse(request, CORRELATION_HEADER, requestId);
+        String causationId = headerOrElse(request, CAUSATION_HEADER, requestId);
+
+        CommandContext.set(new CommandContext(correlationId, causationId, requestId, startedAt));
+        MDC.put(CommandContext.CORRELATION_ID, correlationId);
+        response.setHeader(CORRELATION_HEADER, correlationId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CommandContext.clear();
+            MDC.remove(CommandContext.CORRELATION_ID);
+        }
+    }
+
+    private static String headerOrElse(HttpServletRequest request, String name, String fallback) {
+        String value = request.getHeader(name);
+        return StringUtils.hasText(value) ? value : fallback;
+    }
+}
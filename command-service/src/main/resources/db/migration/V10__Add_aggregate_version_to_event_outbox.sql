@@ -0,0 +1,4 @@
+-- Versão do agregado no outbox, para o EventRouter do Debezium enviá-la como header
+ALTER TABLE event_outbox ADD COLUMN aggregate_version BIGINT;
+
+COMMENT ON COLUMN event_outbox.aggregate_version IS 'Versão do agregado após o evento (header "version" no EventRouter)';
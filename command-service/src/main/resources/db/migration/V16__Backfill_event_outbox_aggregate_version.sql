@@ -0,0 +1,17 @@
+-- A V10 criou aggregate_version sem preencher as linhas existentes. Eventos ainda não
+-- processados precisam da versão para o header "version" do EventRouter.
+-- Os dois serviços usam o mesmo flyway_schema_history sem out-of-order: a versão fica
+-- acima de todas as já aplicadas (V15 é do query-service). Reaplicar é inofensivo.
+UPDATE event_outbox o
+SET aggregate_version = e.version
+FROM event_store e
+WHERE o.status <> 'PROCESSED'
+  AND o.aggregate_version IS NULL
+  AND o.event_store_id = e.id;
+
+-- Linhas sem referência ao event_store: versão gravada no próprio payload
+UPDATE event_outbox
+SET aggregate_version = CAST(event_data ->> 'version' AS BIGINT)
+WHERE status <> 'PROCESSED'
+  AND aggregate_version IS NULL
+  AND event_data IS NOT NULL;
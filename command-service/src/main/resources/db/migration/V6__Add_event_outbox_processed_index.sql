@@ -0,0 +1,4 @@
+-- Índice parcial para a limpeza em lotes de eventos processados
+CREATE INDEX idx_event_outbox_processed_at ON event_outbox (processed_at) WHERE status = 'PROCESSED';
+
+COMMENT ON INDEX idx_event_outbox_processed_at IS 'Suporta a remoção em lotes de eventos PROCESSED antigos';
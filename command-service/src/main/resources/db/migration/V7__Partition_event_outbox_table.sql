@@ -0,0 +1,87 @@
+-- Converte event_outbox em tabela particionada por created_at (uma partição por dia, UTC).
+-- A retenção passa a ser feita removendo partições inteiras (OutboxPartitionMaintenanceJob)
+-- em vez de DELETEs linha a linha.
+
+ALTER TABLE event_outbox RENAME TO event_outbox_legacy;
+
+CREATE TABLE event_outbox (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    aggregate_id UUID NOT NULL,
+    aggregate_type VARCHAR(255) NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    event_data JSONB NOT NULL,
+    event_metadata JSONB,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP WITH TIME ZONE,
+
+    -- Status para controle de processamento
+    status VARCHAR(50) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'PROCESSED', 'FAILED')),
+
+    -- A chave de partição precisa fazer parte da chave primária
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Recebe linhas fora das partições diárias já criadas
+CREATE TABLE event_outbox_default PARTITION OF event_outbox DEFAULT;
+
+-- Partições diárias cobrindo os dados existentes e os próximos 7 dias
+DO $$
+DECLARE
+    first_day DATE;
+    day DATE;
+BEGIN
+    SELECT LEAST(CURRENT_DATE, COALESCE(MIN((created_at AT TIME ZONE 'UTC')::DATE), CURRENT_DATE))
+      INTO first_day
+      FROM event_outbox_legacy;
+
+    FOR day IN SELECT generate_series(first_day, CURRENT_DATE + 7, INTERVAL '1 day')::DATE LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF event_outbox FOR VALUES FROM (%L) TO (%L)',
+            'event_outbox_p' || to_char(day, 'YYYYMMDD'),
+            day::TIMESTAMP AT TIME ZONE 'UTC',
+            (day + 1)::TIMESTAMP AT TIME ZONE 'UTC');
+    END LOOP;
+END;
+$$;
+
+INSERT INTO event_outbox (id, aggregate_id, aggregate_type, event_type, event_data, event_metadata,
+                          created_at, processed_at, status)
+SELECT id, aggregate_id, aggregate_type, event_type, event_data, event_metadata,
+       created_at, processed_at, status
+  FROM event_outbox_legacy;
+
+DROP TABLE event_outbox_legacy;
+
+-- Índices (propagados para todas as partições)
+CREATE INDEX idx_event_outbox_status ON event_outbox (status);
+CREATE INDEX idx_event_outbox_created_at ON event_outbox (created_at);
+CREATE INDEX idx_event_outbox_aggregate_id ON event_outbox (aggregate_id);
+CREATE INDEX idx_event_outbox_aggregate_type ON event_outbox (aggregate_type);
+CREATE INDEX idx_event_outbox_event_type ON event_outbox (event_type);
+CREATE INDEX idx_event_outbox_pending ON event_outbox (created_at) WHERE status = 'PENDING';
+CREATE INDEX idx_event_outbox_processed_at ON event_outbox (processed_at) WHERE status = 'PROCESSED';
+
+-- O Debezium precisa publicar as partições com o nome da tabela raiz
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = 'dbz_publication') THEN
+        CREATE PUBLICATION dbz_publication FOR TABLE event_outbox WITH (publish_via_partition_root = true);
+    ELSE
+        IF NOT (SELECT puballtables FROM pg_publication WHERE pubname = 'dbz_publication') THEN
+            ALTER PUBLICATION dbz_publication SET TABLE event_outbox;
+        END IF;
+        ALTER PUBLICATION dbz_publication SET (publish_via_partition_root = true);
+    END IF;
+END;
+$$;
+
+-- Comentários para documentação
+COMMENT ON TABLE event_outbox IS 'Tabela para implementar o Outbox Pattern - eventos a serem publicados (particionada por dia)';
+COMMENT ON COLUMN event_outbox.aggregate_id IS 'Identificador único do agregado';
+COMMENT ON COLUMN event_outbox.aggregate_type IS 'Tipo do agregado para roteamento';
+COMMENT ON COLUMN event_outbox.event_type IS 'Tipo do evento para roteamento';
+COMMENT ON COLUMN event_outbox.event_data IS 'Dados do evento em formato JSON';
+COMMENT ON COLUMN event_outbox.event_metadata IS 'Metadados do evento';
+COMMENT ON COLUMN event_outbox.status IS 'Status do processamento do evento';
+COMMENT ON COLUMN event_outbox.processed_at IS 'Timestamp de quando o evento foi processado';
+COMMENT ON COLUMN event_outbox.created_at IS 'Timestamp de criação - chave de partição';
@@ -0,0 +1,19 @@
+-- O outbox passa a referenciar a posição global do evento no event_store.
+-- Com app.outbox.payload-mode=reference o payload não é mais duplicado (event_data nulo).
+ALTER TABLE event_outbox ADD COLUMN event_store_id BIGINT;
+ALTER TABLE event_outbox ALTER COLUMN event_data DROP NOT NULL;
+
+-- Preenche a referência dos eventos ainda não processados
+UPDATE event_outbox o
+SET event_store_id = e.id
+FROM event_store e
+WHERE o.status <> 'PROCESSED'
+  AND o.event_store_id IS NULL
+  AND e.aggregate_id = o.aggregate_id
+  AND e.version = CAST(o.event_data ->> 'version' AS BIGINT);
+
+ALTER TABLE event_outbox ADD CONSTRAINT chk_event_outbox_payload
+    CHECK (event_data IS NOT NULL OR event_store_id IS NOT NULL);
+
+COMMENT ON COLUMN event_outbox.event_store_id IS 'Posição global (event_store.id) do evento';
+COMMENT ON COLUMN event_outbox.event_data IS 'Payload do evento; nulo quando lido do event_store (payload-mode=reference)';
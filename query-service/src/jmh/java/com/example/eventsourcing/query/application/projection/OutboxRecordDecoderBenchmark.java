@@ -0,0 +1,129 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.command.domain.pedido.events.*;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a decodificação do envelope do Debezium (envelope + payload até o evento de
+ * domínio) feita com readTree/convertValue, como era antes, com o OutboxRecordDecoder
+ * atual (JsonParser em streaming + ObjectReader por tipo). Os envelopes em
+ * src/jmh/resources/envelopes foram capturados do tópico outbox.public.event_outbox.
+ * <p>
+ * Execução: {@code mvn -Pjmh -pl query-service -am test-compile exec:exec}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class OutboxRecordDecoderBenchmark {
+
+    private static final String TOPIC = "outbox.public.event_outbox";
+
+    private static final Map<String, Class<? extends Event>> EVENT_TYPES = Map.of(
+            "PedidoCriado", PedidoCriado.class,
+            "PedidoAtualizado", PedidoAtualizado.class,
+            "PedidoCancelado", PedidoCancelado.class,
+            "PedidoConfirmado", PedidoConfirmado.class,
+            "PedidoEmPreparacao", PedidoEmPreparacao.class,
+            "PedidoEnviado", PedidoEnviado.class,
+            "PedidoEntregue", PedidoEntregue.class
+    );
+
+    @Param({"pedido-criado", "pedido-confirmado"})
+    private String envelope;
+
+    private ObjectMapper objectMapper;
+    private OutboxRecordDecoder decoder;
+    private ConsumerRecord<String, String> record;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException {
+        // mesma configuração relevante do ObjectMapper do Spring Boot
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        // event_data vem inline: o EventStoreReader nunca é usado
+        decoder = new OutboxRecordDecoder(objectMapper, null);
+        record = new ConsumerRecord<>(TOPIC, 0, 0L, null, load(envelope));
+
+        Event legacy = treeModel(blackhole);
+        Event streaming = streaming(blackhole);
+        // o caminho em árvore passa os números por double e perde a escala dos BigDecimal
+        // (899.90 -> 899.9); aqui basta conferir que os dois leem o mesmo evento
+        if (legacy.getClass() != streaming.getClass()
+                || !legacy.getAggregateId().equals(streaming.getAggregateId())
+                || !legacy.getVersion().equals(streaming.getVersion())) {
+            throw new IllegalStateException("Decoders disagree: " + legacy + " != " + streaming);
+        }
+    }
+
+    /**
+     * Caminho anterior (readTree do envelope e do payload + convertValue), montando o
+     * mesmo ProjectionEvent que o decoder atual, com origem e correlação.
+     */
+    @Benchmark
+    public Event treeModel(Blackhole blackhole) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(record.value());
+        if (!"c".equals(rootNode.path("op").asText())) {
+            return null;
+        }
+
+        JsonNode afterNode = rootNode.get("after");
+        JsonNode eventData = objectMapper.readTree(afterNode.get("event_data").asText());
+        ProjectionEvent event = new ProjectionEvent(
+                UUID.fromString(afterNode.get("id").asText()),
+                UUID.fromString(eventData.get("aggregateId").asText()),
+                eventData.get("version").asLong(),
+                afterNode.get("event_type").asText(),
+                null,
+                afterNode.hasNonNull("event_store_id") ? afterNode.get("event_store_id").asLong() : null,
+                new ProjectionEvent.Origin(record.topic(), record.partition(),
+                        Instant.parse(afterNode.get("created_at").asText()), record.timestamp(),
+                        System.currentTimeMillis(), treeTrace(afterNode.path("event_metadata").asText(null))));
+        blackhole.consume(event);
+        return objectMapper.convertValue(eventData, EVENT_TYPES.get(event.eventType()));
+    }
+
+    @Benchmark
+    public Event streaming(Blackhole blackhole) throws IOException {
+        ProjectionEvent event = decoder.decodeEnvelope(record).orElseThrow();
+        blackhole.consume(event);
+        return decoder.toEvent(event).orElseThrow();
+    }
+
+    private ProjectionEvent.Trace treeTrace(String metadata) throws IOException {
+        if (metadata == null) {
+            return null;
+        }
+        JsonNode node = objectMapper.readTree(metadata);
+        return new ProjectionEvent.Trace(node.path("correlationId").asText(null), node.path("causationId").asText(null),
+                node.path("requestId").asText(null), Instant.parse(node.get("commandStartedAt").asText()));
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream in = OutboxRecordDecoderBenchmark.class.getResourceAsStream("/envelopes/" + name + ".json")) {
+            if (in == null) {
+                throw new IllegalStateException("Envelope not found: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+}
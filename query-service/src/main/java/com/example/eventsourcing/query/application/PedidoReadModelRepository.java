@@ -5,6 +5,7 @@ import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,10 +17,13 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PedidoReadModelRepository extends JpaRepository<PedidoReadModel, UUID> {
+public interface PedidoReadModelRepository extends JpaRepository<PedidoReadModel, UUID>, PedidoReadModelRepositoryCustom {
 
     Optional<PedidoReadModel> findByNumeroPedido(String numeroPedido);
 
+    @Query("SELECT p.version FROM PedidoReadModel p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
     // Consultas por cliente
     List<PedidoReadModel> findByClienteIdOrderByDataCriacaoDesc(UUID clienteId);
     Page<PedidoReadModel> findByClienteIdOrderByDataCriacaoDesc(UUID clienteId, Pageable pageable);
@@ -67,4 +71,28 @@ public interface PedidoReadModelRepository extends JpaRepository<PedidoReadModel
             @Param("inicio") Instant inicio,
             @Param("fim") Instant fim,
             Pageable pageable);
-}
\ No newline at end of file
+
+    // ======================
+    //  ESCRITA DA PROJEÇÃO
+    // ======================
+    // Um comando por evento; a idempotência vem do WHERE version < :version, sem leitura prévia.
+    // Criação e atualização de dados (colunas jsonb) ficam em PedidoReadModelRepositoryImpl.
+
+    @Modifying
+    @Query(value = "UPDATE pedido_read SET status = :status, data_cancelamento = :dataCancelamento, " +
+            "data_atualizacao = :dataCancelamento, observacoes = :motivo, version = :version " +
+            "WHERE id = :id AND version < :version", nativeQuery = true)
+    int updateCancelamento(@Param("id") UUID id,
+                           @Param("status") String status,
+                           @Param("dataCancelamento") Instant dataCancelamento,
+                           @Param("motivo") String motivo,
+                           @Param("version") Long version);
+
+    @Modifying
+    @Query(value = "UPDATE pedido_read SET status = :status, data_atualizacao = :dataAtualizacao, version = :version " +
+            "WHERE id = :id AND version < :version", nativeQuery = true)
+    int updateStatus(@Param("id") UUID id,
+                     @Param("status") String status,
+                     @Param("dataAtualizacao") Instant dataAtualizacao,
+                     @Param("version") Long version);
+}
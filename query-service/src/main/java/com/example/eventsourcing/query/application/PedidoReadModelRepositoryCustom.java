@@ -0,0 +1,40 @@
+package com.example.eventsourcing.query.application;
+
+import com.example.eventsourcing.command.domain.pedido.StatusPedido;
+import com.example.eventsourcing.query.application.readmodel.EnderecoEntrega;
+import com.example.eventsourcing.query.application.readmodel.ItemPedido;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface PedidoReadModelRepositoryCustom {
+
+    /**
+     * Carrega os read models desanexados do contexto de persistência, para serem
+     * alterados em memória e gravados com {@link #upsertAll} (sem flush do Hibernate).
+     */
+    List<PedidoReadModel> findAllDetached(Collection<UUID> ids);
+
+    /**
+     * Grava os read models com JDBC batch (INSERT ... ON CONFLICT). Uma linha só é
+     * sobrescrita se a versão gravada for menor que a nova.
+     */
+    int upsertAll(Collection<PedidoReadModel> readModels);
+
+    /**
+     * INSERT ... ON CONFLICT DO NOTHING: devolve 0 se o pedido já foi projetado.
+     */
+    int insertIfAbsent(PedidoReadModel readModel);
+
+    /**
+     * Substitui itens, endereço, valor, observações e status num único UPDATE,
+     * aplicado só se a versão gravada for menor que a do evento. Devolve 0 para
+     * eventos repetidos ou pedido inexistente.
+     */
+    int updateDados(UUID id, List<ItemPedido> itens, EnderecoEntrega enderecoEntrega, BigDecimal valorTotal,
+                    String observacoes, StatusPedido status, Instant dataAtualizacao, long version);
+}
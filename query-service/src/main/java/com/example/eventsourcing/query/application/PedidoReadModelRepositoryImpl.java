@@ -0,0 +1,146 @@
+package com.example.eventsourcing.query.application;
+
+import com.example.eventsourcing.command.domain.pedido.StatusPedido;
+import com.example.eventsourcing.query.application.readmodel.EnderecoEntrega;
+import com.example.eventsourcing.query.application.readmodel.ItemPedido;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class PedidoReadModelRepositoryImpl implements PedidoReadModelRepositoryCustom {
+
+    private static final String UPSERT_SQL = "INSERT INTO pedido_read (" +
+            "id, numero_pedido, cliente_id, cliente_nome, cliente_email, status, valor_total, " +
+            "data_criacao, data_atualizacao, data_cancelamento, observacoes, itens, endereco_entrega, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?) " +
+            "ON CONFLICT (id) DO UPDATE SET " +
+            "numero_pedido = EXCLUDED.numero_pedido, " +
+            "cliente_id = EXCLUDED.cliente_id, " +
+            "cliente_nome = EXCLUDED.cliente_nome, " +
+            "cliente_email = EXCLUDED.cliente_email, " +
+            "status = EXCLUDED.status, " +
+            "valor_total = EXCLUDED.valor_total, " +
+            "data_criacao = EXCLUDED.data_criacao, " +
+            "data_atualizacao = EXCLUDED.data_atualizacao, " +
+            "data_cancelamento = EXCLUDED.data_cancelamento, " +
+            "observacoes = EXCLUDED.observacoes, " +
+            "itens = EXCLUDED.itens, " +
+            "endereco_entrega = EXCLUDED.endereco_entrega, " +
+            "version = EXCLUDED.version " +
+            "WHERE pedido_read.version < EXCLUDED.version";
+
+    private static final String INSERT_IF_ABSENT_SQL = "INSERT INTO pedido_read (" +
+            "id, numero_pedido, cliente_id, cliente_nome, cliente_email, status, valor_total, " +
+            "data_criacao, data_atualizacao, data_cancelamento, observacoes, itens, endereco_entrega, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?) " +
+            "ON CONFLICT (id) DO NOTHING";
+
+    private static final String UPDATE_DADOS_SQL = "UPDATE pedido_read SET " +
+            "itens = CAST(? AS jsonb), endereco_entrega = CAST(? AS jsonb), valor_total = ?, " +
+            "observacoes = ?, status = ?, data_atualizacao = ?, version = ? " +
+            "WHERE id = ? AND version < ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public List<PedidoReadModel> findAllDetached(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<PedidoReadModel> readModels = entityManager
+                .createQuery("SELECT p FROM PedidoReadModel p WHERE p.id IN :ids", PedidoReadModel.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        readModels.forEach(entityManager::detach);
+        return readModels;
+    }
+
+    @Override
+    public int upsertAll(Collection<PedidoReadModel> readModels) {
+        if (readModels.isEmpty()) {
+            return 0;
+        }
+        List<PedidoReadModel> rows = new ArrayList<>(readModels);
+        int[][] results = jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), this::bind);
+
+        int written = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                written += Math.max(count, 0);
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public int insertIfAbsent(PedidoReadModel readModel) {
+        return jdbcTemplate.update(INSERT_IF_ABSENT_SQL, ps -> bind(ps, readModel));
+    }
+
+    @Override
+    public int updateDados(UUID id, List<ItemPedido> itens, EnderecoEntrega enderecoEntrega, BigDecimal valorTotal,
+                           String observacoes, StatusPedido status, Instant dataAtualizacao, long version) {
+        return jdbcTemplate.update(UPDATE_DADOS_SQL, ps -> {
+            ps.setString(1, toJson(itens));
+            ps.setString(2, toJson(enderecoEntrega));
+            ps.setBigDecimal(3, valorTotal);
+            ps.setString(4, observacoes);
+            ps.setString(5, status.name());
+            ps.setTimestamp(6, toTimestamp(dataAtualizacao));
+            ps.setLong(7, version);
+            ps.setObject(8, id);
+            ps.setLong(9, version);
+        });
+    }
+
+    private void bind(PreparedStatement ps, PedidoReadModel readModel) throws SQLException {
+        ps.setObject(1, readModel.getId());
+        ps.setString(2, readModel.getNumeroPedido());
+        ps.setObject(3, readModel.getClienteId());
+        ps.setString(4, readModel.getClienteNome());
+        ps.setString(5, readModel.getClienteEmail());
+        ps.setString(6, readModel.getStatus().name());
+        ps.setBigDecimal(7, readModel.getValorTotal());
+        ps.setTimestamp(8, toTimestamp(readModel.getDataCriacao()));
+        ps.setTimestamp(9, toTimestamp(readModel.getDataAtualizacao()));
+        ps.setTimestamp(10, toTimestamp(readModel.getDataCancelamento()));
+        ps.setString(11, readModel.getObservacoes());
+        ps.setString(12, toJson(readModel.getItens()));
+        ps.setString(13, toJson(readModel.getEnderecoEntrega()));
+        ps.setLong(14, readModel.getVersion());
+    }
+
+    private String toJson(Object value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize read model column", e);
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.eventsourcing.query.application.infrastructure.eventstore;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Leitura direta do event_store (mesmo banco do command-service), usada quando a
+ * linha do outbox chega sem payload (app.outbox.payload-mode=reference) e no
+ * catch-up de pedidos com buraco de versões na projeção e no rebuild do read model.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventStoreReader {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Payload (JSON em texto) do evento na posição global informada.
+     */
+    public Optional<String> findEventData(long eventStoreId) {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT CAST(event_data AS text) FROM event_store WHERE id = ?",
+                String.class, eventStoreId);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Eventos do pedido com versão maior que a informada, em ordem de versão.
+     */
+    public List<StoredEvent> findEventsAfter(UUID aggregateId, long afterVersion) {
+        return jdbcTemplate.query(
+                "SELECT id, event_type, CAST(event_data AS text), version FROM event_store " +
+                        "WHERE aggregate_id = ? AND version > ? ORDER BY version",
+                (rs, rowNum) -> new StoredEvent(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)),
+                aggregateId, afterVersion);
+    }
+
+    /**
+     * Maior posição global gravada (0 se o event_store está vazio).
+     */
+    public long maxId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM event_store", Long.class);
+        return max != null ? max : 0;
+    }
+
+    /**
+     * Percorre o event_store em ordem global até a posição informada, com cursor
+     * (fetch-size) para não carregar a tabela inteira em memória.
+     */
+    public void forEachUpTo(long maxId, int fetchSize, BiConsumer<UUID, StoredEvent> handler) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT id, aggregate_id, event_type, CAST(event_data AS text), version FROM event_store " +
+                            "WHERE id <= ? ORDER BY id");
+            ps.setLong(1, maxId);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            handler.accept(rs.getObject(2, UUID.class),
+                    new StoredEvent(rs.getLong(1), rs.getString(3), rs.getString(4), rs.getLong(5)));
+        }));
+    }
+
+    /**
+     * Próximos eventos depois da posição informada, em ordem global (catch-up em lotes).
+     */
+    public List<AggregateEvent> findEventsAfterPosition(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, aggregate_id, event_type, CAST(event_data AS text), version FROM event_store " +
+                        "WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new AggregateEvent(rs.getObject(2, UUID.class),
+                        new StoredEvent(rs.getLong(1), rs.getString(3), rs.getString(4), rs.getLong(5))),
+                afterId, limit);
+    }
+
+    /**
+     * Pedidos com eventos nas posições (afterId, upToId].
+     */
+    public List<UUID> findAggregateIdsBetween(long afterId, long upToId) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT aggregate_id FROM event_store WHERE id > ? AND id <= ?",
+                UUID.class, afterId, upToId);
+    }
+
+    public record StoredEvent(long id, String eventType, String eventData, long version) {
+    }
+
+    public record AggregateEvent(UUID aggregateId, StoredEvent event) {
+    }
+}
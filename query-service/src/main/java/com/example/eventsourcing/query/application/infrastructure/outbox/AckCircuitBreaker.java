@@ -0,0 +1,54 @@
+package com.example.eventsourcing.query.application.infrastructure.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker simples para os ACKs HTTP: abre após N falhas consecutivas
+ * (erros ou timeouts) e, depois do intervalo de espera, deixa passar uma chamada
+ * de teste (half-open).
+ */
+@Slf4j
+class AckCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong(-1);
+
+    AckCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Indica se a chamada pode seguir para o command-service.
+     */
+    boolean allowRequest() {
+        long opened = openedAt.get();
+        if (opened < 0) {
+            return true;
+        }
+        // half-open: só uma chamada de teste por janela
+        return System.nanoTime() - opened >= openDurationNanos
+                && openedAt.compareAndSet(opened, System.nanoTime());
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        if (openedAt.getAndSet(-1) >= 0) {
+            log.info("✅ Command-service respondendo, circuito de ACK fechado");
+        }
+    }
+
+    void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && openedAt.get() < 0) {
+            openedAt.set(System.nanoTime());
+            log.warn("⚠️ Circuito de ACK aberto após {} falhas consecutivas", consecutiveFailures.get());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.eventsourcing.query.application.infrastructure.outbox;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * WebClient único (com pool de conexões) para chamadas ao command-service.
+ */
+@Configuration
+public class CommandServiceClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider commandServiceConnectionProvider(
+            @Value("${app.command-service.max-connections:50}") int maxConnections,
+            @Value("${app.command-service.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs) {
+        return ConnectionProvider.builder("command-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Bean
+    public WebClient commandServiceWebClient(
+            WebClient.Builder builder,
+            ConnectionProvider commandServiceConnectionProvider,
+            @Value("${app.command-service.base-url:http://localhost:8080}") String baseUrl,
+            @Value("${app.command-service.connect-timeout-ms:1000}") int connectTimeoutMs,
+            @Value("${app.command-service.response-timeout-ms:2000}") long responseTimeoutMs) {
+        HttpClient httpClient = HttpClient.create(commandServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
+        return builder
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.eventsourcing.query.application.infrastructure.outbox;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -9,7 +11,16 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Reenvia os ACKs pendentes em páginas: cada página é reivindicada com lease
+ * (ver {@link OutboxPendingAckRepository#claimDue}), dividida em lotes enviados em
+ * paralelo, e o resultado é gravado com um DELETE para os confirmados e um UPDATE
+ * (backoff exponencial) para os que falharam.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -21,57 +32,103 @@ public class OutboxAckRetryJob {
     //private static final int MAX_RETRIES = 100; // limite de tentativas
     private static final Duration ACK_TTL = Duration.ofDays(7); // expira ACKs muito antigos
 
-    @Scheduled(fixedDelay = 30000) // a cada 30s
-    public void retryPendingAcks() {
-        var pendencias = pendingAckRepository.findAll();
+    @Value("${app.outbox-ack.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox-ack.retry.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.outbox-ack.retry.base-delay-seconds:5}")
+    private long baseDelaySeconds;
+
+    @Value("${app.outbox-ack.retry.max-delay-seconds:600}")
+    private long maxDelaySeconds;
 
-        if (pendencias.isEmpty()) {
-            return; // nada para fazer
+    @Value("${app.outbox-ack.retry.lease-seconds:60}")
+    private long leaseSeconds;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Scheduled(fixedDelayString = "${app.outbox-ack.retry.interval-ms:5000}")
+    public void retryPendingAcks() {
+        int expired = pendingAckRepository.deleteExpired(Instant.now().minus(ACK_TTL));
+        if (expired > 0) {
+            log.warn("🗑️ Descartados {} ACKs expirados", expired);
         }
 
-        log.debug("🔄 Tentando reenviar {} ACKs pendentes...", pendencias.size());
-
-        List<OutboxPendingAck> processados = new ArrayList<>();
-        List<OutboxPendingAck> descartados = new ArrayList<>();
-
-        for (OutboxPendingAck pending : pendencias) {
-            try {
-                // Verifica expiração
-                if (pending.getCreatedAt().isBefore(Instant.now().minus(ACK_TTL))) {
-                    log.warn("🗑️ Descartando ACK expirado para {}", pending.getOutboxEventId());
-                    descartados.add(pending);
-                    continue;
-                }
-
-                // Verifica limite de tentativas
-              /*  if (pending.getRetryCount() >= MAX_RETRIES) {
-                    log.error("❌ ACK excedeu limite de {} tentativas para {}",
-                            MAX_RETRIES, pending.getOutboxEventId());
-                    descartados.add(pending);
-                    continue;
-                }*/
-
-                // Reenvia
-                outboxClient.markAsProcessed(pending.getOutboxEventId());
-                log.info("✅ ACK reenviado com sucesso para {}", pending.getOutboxEventId());
-                processados.add(pending);
-
-            } catch (Exception e) {
-                // Falhou → incrementa contador
-                pending.incrementRetryCount();
-                pendingAckRepository.save(pending); // persiste contador
-                log.warn("⚠️ Ainda offline? Tentativa {} falhou para {}",
-                        pending.getRetryCount(), pending.getOutboxEventId());
+        int pageSize = batchSize * parallelism;
+        int sent = 0;
+        int failed = 0;
+        List<OutboxPendingAck> page;
+        do {
+            Instant now = Instant.now();
+            page = pendingAckRepository.claimDue(now, now.plusSeconds(leaseSeconds), pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<Long> processados = new ArrayList<>();
+            List<Long> falhas = new ArrayList<>();
+            dispatch(page, processados, falhas);
+
+            if (!processados.isEmpty()) {
+                pendingAckRepository.deleteAllByIdInBatch(processados);
+            }
+            if (!falhas.isEmpty()) {
+                pendingAckRepository.scheduleRetry(falhas, baseDelaySeconds, maxDelaySeconds);
+            }
+            sent += processados.size();
+            failed += falhas.size();
+
+            // Se nada passou, o command-service provavelmente está fora: espera o backoff
+            if (processados.isEmpty()) {
+                break;
             }
+        } while (page.size() == pageSize);
+
+        if (sent > 0) {
+            log.info("✅ {} ACKs reenviados com sucesso", sent);
+        }
+        if (failed > 0) {
+            log.warn("⚠️ Ainda offline? Reenvio de {} ACKs falhou, reagendados com backoff", failed);
+        }
+    }
+
+    /**
+     * Envia os lotes da página em paralelo e separa os ids confirmados dos que falharam.
+     */
+    private void dispatch(List<OutboxPendingAck> page, List<Long> processados, List<Long> falhas) {
+        List<List<OutboxPendingAck>> lotes = new ArrayList<>();
+        for (int i = 0; i < page.size(); i += batchSize) {
+            lotes.add(page.subList(i, Math.min(i + batchSize, page.size())));
         }
 
-        // Deleta os que foram confirmados ou descartados
-        if (!processados.isEmpty()) {
-            pendingAckRepository.deleteAllInBatch(processados);
+        List<CompletableFuture<Boolean>> envios = lotes.stream()
+                .map(lote -> CompletableFuture.supplyAsync(() -> send(lote), executor))
+                .toList();
+
+        for (int i = 0; i < lotes.size(); i++) {
+            List<Long> ids = lotes.get(i).stream().map(OutboxPendingAck::getId).toList();
+            if (envios.get(i).join()) {
+                processados.addAll(ids);
+            } else {
+                falhas.addAll(ids);
+            }
         }
-        if (!descartados.isEmpty()) {
-            pendingAckRepository.deleteAllInBatch(descartados);
+    }
+
+    private boolean send(List<OutboxPendingAck> lote) {
+        try {
+            outboxClient.markAllAsProcessed(lote.stream().map(OutboxPendingAck::getOutboxEventId).toList());
+            return true;
+        } catch (Exception e) {
+            log.debug("Reenvio de {} ACKs falhou: {}", lote.size(), e.getMessage());
+            return false;
         }
     }
-}
 
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.eventsourcing.query.application.infrastructure.outbox;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Tópico onde o query-service publica os ids de outbox processados. A chave é o id
+ * do evento (único), então compactação não liberaria nada: os registros expiram por
+ * tempo (retention-ms), bem depois de o command-service consumi-los.
+ */
+@Configuration
+public class OutboxAckTopicConfig {
+
+    @Bean
+    public NewTopic outboxAckTopic(@Value("${app.outbox-ack.topic:outbox.acks}") String topic,
+                                   @Value("${app.outbox-ack.partitions:3}") int partitions,
+                                   @Value("${app.outbox-ack.retention-ms:86400000}") long retentionMs) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(1)
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retentionMs))
+                .build();
+    }
+}
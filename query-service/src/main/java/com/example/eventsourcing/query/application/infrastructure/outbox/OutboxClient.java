@@ -1,57 +1,234 @@
 package com.example.eventsourcing.query.application.infrastructure.outbox;
 
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Confirma eventos do outbox no command-service.
+ * Com transport=kafka cada ACK é publicado de forma assíncrona no tópico de ACKs; com transport=http os ACKs são acumulados e enviados em lote, por tamanho
+ * (batch-size) ou por tempo (flush-interval-ms), sem bloquear a thread do consumer.
+ * O ACK só é disparado depois do commit da projeção. O número de lotes HTTP em voo é
+ * limitado (max-in-flight) e, com o circuito aberto ou sem vaga na janela, os ACKs
+ * vão direto para a tabela outbox_pending_ack.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class OutboxClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final String PROCESSED_PATH = "/api/admin/outbox/processed";
 
+    private final WebClient commandServiceWebClient;
+    private final OutboxPendingAckRepository pendingAckRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${app.outbox-ack.transport:http}")
+    private String transport;
+
+    @Value("${app.outbox-ack.topic:outbox.acks}")
+    private String ackTopic;
+
+    @Value("${app.outbox-ack.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox-ack.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.outbox-ack.http.timeout-ms:3000}")
+    private long httpTimeoutMs;
+
+    @Value("${app.outbox-ack.http.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${app.outbox-ack.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.outbox-ack.circuit-breaker.open-ms:30000}")
+    private long openMs;
+
+    private final List<UUID> buffer = new ArrayList<>();
+
+    // gravações em outbox_pending_ack disparadas por callbacks assíncronos (producer/Netty)
+    private final ExecutorService pendingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Semaphore inFlight;
+    private AckCircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void init() {
+        inFlight = new Semaphore(maxInFlight);
+        circuitBreaker = new AckCircuitBreaker(failureThreshold, Duration.ofMillis(openMs));
+    }
+
+    /**
+     * Agenda o ACK para depois do commit da transação corrente (ou envia na hora,
+     * se não houver transação). Se a projeção sofrer rollback, nada é confirmado.
+     */
     public void markAsProcessed(UUID eventId) {
-        String url = "http://localhost:8080/api/admin/outbox/" + eventId + "/processed";
+        TransactionHooks.afterCommit(() -> dispatch(eventId));
+    }
 
-        webClientBuilder.build()
-                .post()
-                .uri(url)
-                .retrieve()
-                .toBodilessEntity()
-                .block();
+    private void dispatch(UUID eventId) {
+        if (isKafkaTransport()) {
+            // callback fora da thread de I/O do producer (save é bloqueante)
+            sendAck(eventId).whenCompleteAsync((result, ex) -> {
+                if (ex != null) {
+                    log.warn("⚠️ Falha ao publicar ACK {}, salvando pendência", eventId);
+                    savePending(List.of(eventId));
+                }
+            }, pendingExecutor);
+            return;
+        }
 
-        log.debug("✅ Evento {} marcado como PROCESSED no command-service", eventId);
+        boolean full;
+        synchronized (buffer) {
+            buffer.add(eventId);
+            full = buffer.size() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
     }
-}
 
+    @Scheduled(fixedDelayString = "${app.outbox-ack.flush-interval-ms:500}")
+    public void flush() {
+        List<UUID> ids;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            ids = new ArrayList<>(buffer);
+            buffer.clear();
+        }
 
-/*@Component
-@RequiredArgsConstructor
-@Slf4j
-public class OutboxClient {
+        if (!circuitBreaker.allowRequest()) {
+            log.debug("Circuito de ACK aberto, salvando {} pendências", ids.size());
+            savePending(ids);
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            log.warn("⚠️ Janela de ACKs em voo cheia ({}), salvando {} pendências", maxInFlight, ids.size());
+            savePending(ids);
+            return;
+        }
 
-    private final WebClient.Builder webClientBuilder;
+        postProcessed(ids)
+                .doFinally(signal -> inFlight.release())
+                .subscribe(
+                        response -> {
+                            circuitBreaker.onSuccess();
+                            log.debug("✅ {} eventos marcados como PROCESSED no command-service", ids.size());
+                        },
+                        ex -> {
+                            circuitBreaker.onFailure();
+                            log.warn("⚠️ Command-service indisponível ({}), salvando {} pendências",
+                                    ex.getMessage(), ids.size());
+                            // saveAll é bloqueante: fora da thread do Netty
+                            pendingExecutor.execute(() -> savePending(ids));
+                        });
+    }
 
-    private static final String COMMAND_SERVICE_URL = "http://localhost:8080";
-    // 🔧 ajuste conforme porta do command-service
+    /**
+     * No shutdown o que sobrou no buffer é enviado de forma síncrona e as pendências
+     * em gravação terminam antes de o pool de conexões fechar.
+     */
+    @PreDestroy
+    public void drain() {
+        List<UUID> ids;
+        synchronized (buffer) {
+            ids = new ArrayList<>(buffer);
+            buffer.clear();
+        }
+        if (!ids.isEmpty()) {
+            try {
+                markAllAsProcessed(ids);
+            } catch (Exception ex) {
+                log.warn("⚠️ Falha ao enviar ACKs no shutdown, salvando {} pendências", ids.size());
+                savePending(ids);
+            }
+        }
 
-    public void markAsProcessed(UUID outboxEventId) {
+        pendingExecutor.shutdown();
         try {
-            webClientBuilder.build()
-                    .post()
-                    .uri(COMMAND_SERVICE_URL + "/api/admin/outbox/{id}/processed", outboxEventId)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block();
-            log.debug("✅ Evento {} marcado como PROCESSED via command-service", outboxEventId);
-        } catch (Exception e) {
-            log.error("❌ Falha ao chamar command-service para evento {}", outboxEventId, e);
+            pendingExecutor.awaitTermination(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Envia um lote de ACKs numa única chamada (lança exceção em caso de falha).
+     */
+    public void markAllAsProcessed(List<UUID> eventIds) {
+        if (isKafkaTransport()) {
+            try {
+                CompletableFuture.allOf(eventIds.stream().map(this::sendAck).toArray(CompletableFuture[]::new))
+                        .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while publishing outbox acks", e);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to publish outbox acks", e);
+            }
+            return;
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            throw new IllegalStateException("Outbox ack circuit is open");
+        }
+        try {
+            postProcessed(eventIds).block();
+            circuitBreaker.onSuccess();
+        } catch (RuntimeException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        }
+    }
+
+    private Mono<?> postProcessed(List<UUID> eventIds) {
+        return commandServiceWebClient
+                .post()
+                .uri(PROCESSED_PATH)
+                .bodyValue(eventIds)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofMillis(httpTimeoutMs));
+    }
+
+    private void savePending(List<UUID> ids) {
+        try {
+            pendingAckRepository.saveAll(ids.stream().map(OutboxPendingAck::new).toList());
+        } catch (Exception ex) {
+            log.error("❌ Falha ao salvar {} ACKs pendentes", ids.size(), ex);
+        }
+    }
+
+    private CompletableFuture<?> sendAck(UUID eventId) {
+        return kafkaTemplate.send(ackTopic, eventId.toString(), Instant.now().toString());
+    }
+
+    private boolean isKafkaTransport() {
+        return "kafka".equalsIgnoreCase(transport);
+    }
 }
-*/
\ No newline at end of file
@@ -28,6 +28,9 @@ public class OutboxPendingAck {
     @Column(name = "retry_count", nullable = false)
     private int retryCount = 0;
 
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt = Instant.now();
+
     public OutboxPendingAck(UUID outboxEventId) {
         this.outboxEventId = outboxEventId;
     }
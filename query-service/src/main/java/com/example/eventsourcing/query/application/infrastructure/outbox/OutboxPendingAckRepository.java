@@ -1,8 +1,47 @@
 package com.example.eventsourcing.query.application.infrastructure.outbox;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
-public interface OutboxPendingAckRepository extends JpaRepository<OutboxPendingAck, UUID> {
+public interface OutboxPendingAckRepository extends JpaRepository<OutboxPendingAck, Long> {
+
+    /**
+     * Reivindica um lote de ACKs vencidos, empurrando next_attempt_at para o fim do
+     * lease. Outras instâncias pulam as linhas travadas (SKIP LOCKED) e, se esta cair
+     * no meio do envio, as linhas voltam a ficar disponíveis quando o lease expirar.
+     */
+    @Transactional
+    @Query(value = "UPDATE outbox_pending_ack SET next_attempt_at = :leaseUntil " +
+            "WHERE id IN (SELECT id FROM outbox_pending_ack WHERE next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *", nativeQuery = true)
+    List<OutboxPendingAck> claimDue(@Param("now") Instant now,
+                                    @Param("leaseUntil") Instant leaseUntil,
+                                    @Param("limit") int limit);
+
+    /**
+     * Reagenda os ACKs que falharam: retry_count + 1 e próxima tentativa em
+     * base * 2^retry_count segundos (com jitter), limitada a maxSeconds.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE outbox_pending_ack SET retry_count = retry_count + 1, " +
+            "next_attempt_at = now() + make_interval(secs => " +
+            "LEAST(:maxSeconds, :baseSeconds * power(2, LEAST(retry_count, 20))) * (0.5 + random() / 2)) " +
+            "WHERE id IN (:ids)", nativeQuery = true)
+    int scheduleRetry(@Param("ids") Collection<Long> ids,
+                      @Param("baseSeconds") long baseSeconds,
+                      @Param("maxSeconds") long maxSeconds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM outbox_pending_ack WHERE created_at < :cutoff", nativeQuery = true)
+    int deleteExpired(@Param("cutoff") Instant cutoff);
 }
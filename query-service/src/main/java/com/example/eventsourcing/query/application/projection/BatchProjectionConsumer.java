@@ -0,0 +1,247 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.query.application.PedidoReadModelRepository;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.example.eventsourcing.query.application.query.PedidoReadCache;
+import com.example.eventsourcing.query.application.infrastructure.outbox.OutboxClient;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Projeção em lote: cada poll é aplicado numa única transação. Os read models
+ * afetados são carregados de uma vez, os eventos de um mesmo pedido são aplicados
+ * em memória e cada linha é gravada uma única vez (JDBC batch). Sem o roteamento por
+ * pedido, as versões de um pedido chegam espalhadas por partições: um evento que pula
+ * versões é completado com as que faltam, lidas do event_store (como no catch-up), e
+ * as versões atrasadas são descartadas como duplicadas quando chegam. Se o lote falhar,
+ * os registros são reprocessados um a um para isolar a mensagem problemática, que
+ * segue para o DLT via {@link BatchListenerFailedException}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BatchProjectionConsumer implements ConsumerSeekAware {
+
+    private final OutboxRecordDecoder decoder;
+    private final PedidoProjectionHandler pedidoProjectionHandler;
+    private final PedidoReadModelRepository readModelRepository;
+    private final OutboxClient outboxClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ProjectedVersionIndex versionIndex;
+    private final ProjectionOffsetStore offsetStore;
+    private final EventStoreReader eventStoreReader;
+    private final ParkingLot parkingLot;
+    private final ProjectionLatencyRecorder latencyRecorder;
+    private final ProjectionCheckpointStore checkpointStore;
+    private final PedidoReadCache cache;
+
+    @Value("${app.projection.routed.enabled:false}")
+    private boolean routed;
+
+    @KafkaListener(
+            id = "pedido-batch-projection",
+            topics = "#{${app.projection.routed.enabled:false} ? '${app.projection.routed.topic:outbox.events}' : 'outbox.public.event_outbox'}",
+            groupId = "query-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            batch = "true",
+            autoStartup = "${app.projection.batch.enabled:false}"
+    )
+    public void listenBatch(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                project(decodeAll(records));
+                offsetStore.storeAll(records);
+            });
+        } catch (Exception e) {
+            log.warn("⚠️ Lote de {} mensagens falhou, reprocessando uma a uma", records.size(), e);
+            projectOneByOne(records);
+        }
+        ack.acknowledge();
+    }
+
+    /**
+     * Projeta eventos vindos de fora do listener (ex.: replay do DLT) pelo mesmo caminho
+     * em lote, numa transação, em ordem de versão por pedido.
+     */
+    public void projectAll(List<ProjectionEvent> events) {
+        List<ProjectionEvent> ordered = new ArrayList<>(events);
+        ordered.sort(Comparator.comparing(ProjectionEvent::aggregateId).thenComparingLong(ProjectionEvent::version));
+        transactionTemplate.executeWithoutResult(status -> project(ordered));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        versionIndex.warmAsync();
+        offsetStore.seekToStored(assignments, callback);
+    }
+
+    /**
+     * Cada registro na sua transação; o primeiro que falhar interrompe o lote. Os
+     * anteriores já foram gravados e o error handler repete/envia ao DLT a partir dele.
+     */
+    private void projectOneByOne(List<ConsumerRecord<String, String>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    decode(record).ifPresent(event -> project(List.of(event)));
+                    offsetStore.store(record);
+                });
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("💥 ERRO ao processar Kafka msg, offset=" + record.offset(), e, i);
+            }
+        }
+    }
+
+    private void project(List<ProjectionEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // duplicados/antigos descartados pelo índice em memória, sem ir ao banco
+        List<ProjectionEvent> pending = new ArrayList<>(events.size());
+        List<ProjectionEvent> acked = new ArrayList<>(events.size());
+        Set<UUID> aggregateIds = new LinkedHashSet<>();
+        int skipped = 0;
+        for (ProjectionEvent event : events) {
+            if (versionIndex.isProjected(event.aggregateId(), event.version())) {
+                skipped++;
+                acked.add(event);
+            } else if (!parkingLot.isParked(event.aggregateId()) || !parkingLot.park(event)) {
+                // estacionados ficam de fora e são confirmados no outbox só no replay do pedido
+                pending.add(event);
+                aggregateIds.add(event.aggregateId());
+            }
+        }
+
+        Map<UUID, PedidoReadModel> current = new HashMap<>();
+        readModelRepository.findAllDetached(aggregateIds).forEach(model -> current.put(model.getId(), model));
+
+        // aplica em memória, na ordem do tópico, completando lacunas de versão pelo
+        // event_store; só a última versão de cada pedido é gravada
+        Map<UUID, PedidoReadModel> changed = new LinkedHashMap<>();
+        long position = 0;
+        for (ProjectionEvent event : pending) {
+            PedidoReadModel model = current.get(event.aggregateId());
+            if (model != null && model.getVersion() >= event.version()) {
+                skipped++;
+                acked.add(event);
+                continue;
+            }
+            Optional<Event> domainEvent = toEvent(event);
+            if (domainEvent.isEmpty()) {
+                acked.add(event);
+                continue;
+            }
+            long version = model != null ? model.getVersion() : 0L;
+            if (event.version() > version + 1) {
+                // versões anteriores em outra partição/lote (ex.: PedidoCriado atrasado)
+                model = fillGap(model, event);
+            }
+            PedidoReadModel updated = pedidoProjectionHandler.apply(model, domainEvent.get());
+            if (updated == null && model == null) {
+                throw new IllegalStateException("Pedido " + event.aggregateId() + " not found for "
+                        + event.eventType() + " v" + event.version());
+            }
+            if (updated == null) {
+                // tipo de evento sem efeito no read model
+                acked.add(event);
+                continue;
+            }
+            current.put(event.aggregateId(), updated);
+            changed.put(event.aggregateId(), updated);
+            acked.add(event);
+            latencyRecorder.recordAfterCommit(event, domainEvent.get().getTimestamp());
+            if (event.eventStoreId() != null) {
+                position = Math.max(position, event.eventStoreId());
+            }
+        }
+
+        int written = readModelRepository.upsertAll(changed.values());
+        versionIndex.advanceAfterCommit(changed.values().stream()
+                .map(model -> new ProjectedVersionIndex.VersionedId(model.getId(), model.getVersion()))
+                .toList());
+        if (position > 0) {
+            checkpointStore.advanceAfterCommit(position);
+        }
+        changed.values().forEach(model -> cache.evictAfterCommit(model.getId(), model.getVersion()));
+
+        // ACKs do outbox disparados após o commit
+        acked.forEach(event -> outboxClient.markAsProcessed(event.outboxEventId()));
+
+        log.info("🎯 Lote projetado: {} eventos, {} pedidos gravados, {} duplicados ignorados",
+                events.size(), written, skipped);
+    }
+
+    /**
+     * Aplica sobre o modelo as versões do event_store entre a dele e a do evento. Falha
+     * se o event_store não tiver todas: gravar o evento por cima perderia as que faltam.
+     */
+    private PedidoReadModel fillGap(PedidoReadModel model, ProjectionEvent event) {
+        UUID aggregateId = event.aggregateId();
+        long expected = (model != null ? model.getVersion() : 0L) + 1;
+        for (EventStoreReader.StoredEvent stored : eventStoreReader.findEventsAfter(aggregateId, expected - 1)) {
+            if (stored.version() >= event.version() || stored.version() != expected) {
+                break;
+            }
+            Optional<Event> domainEvent = toEvent(new ProjectionEvent(null, aggregateId, stored.version(),
+                    stored.eventType(), stored.eventData(), stored.id()));
+            if (domainEvent.isPresent()) {
+                PedidoReadModel updated = pedidoProjectionHandler.apply(model, domainEvent.get());
+                model = updated != null ? updated : model;
+            }
+            expected++;
+        }
+        if (expected != event.version()) {
+            throw new IllegalStateException("Pedido " + aggregateId + " missing v" + expected + " in event_store before "
+                    + event.eventType() + " v" + event.version());
+        }
+        log.info("🧩 Pedido {}: versões até v{} aplicadas do event_store antes de {} v{}",
+                aggregateId, expected - 1, event.eventType(), event.version());
+        return model;
+    }
+
+    private List<ProjectionEvent> decodeAll(List<ConsumerRecord<String, String>> records) {
+        List<ProjectionEvent> events = new ArrayList<>(records.size());
+        records.forEach(record -> decode(record).ifPresent(events::add));
+        return events;
+    }
+
+    private Optional<ProjectionEvent> decode(ConsumerRecord<String, String> record) {
+        try {
+            return routed ? decoder.decodeRouted(record) : decoder.decodeEnvelope(record);
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid outbox message at offset " + record.offset(), e);
+        }
+    }
+
+    private Optional<Event> toEvent(ProjectionEvent event) {
+        try {
+            return decoder.toEvent(event);
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid payload for outbox event " + event.outboxEventId(), e);
+        }
+    }
+}
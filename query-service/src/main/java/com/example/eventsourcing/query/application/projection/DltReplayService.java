@@ -0,0 +1,292 @@
+package com.example.eventsourcing.query.application.projection;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replay em massa do DLT da projeção. Cada job lê um intervalo do tópico de DLT com um
+ * consumer próprio (assign, sem commit de offsets), filtra por tempo, tipo de evento ou
+ * pedido e grava pelo caminho em lote ({@link BatchProjectionConsumer#projectAll}),
+ * limitado a rate-per-second eventos/s. O DLT traz versões soltas de cada pedido: as
+ * que faltam entre o read model e o evento são completadas pelo event_store nesse
+ * caminho. Jobs terminados ficam consultáveis por job-retention-minutes. Enquanto o controle de fluxo mantém a projeção
+ * pausada (banco saturado) o replay também espera, para não competir com o consumo normal.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DltReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final OutboxRecordDecoder decoder;
+    private final BatchProjectionConsumer batchProjection;
+    private final ProjectionFlowController flowController;
+
+    @Value("${app.projection.routed.enabled:false}")
+    private boolean routed;
+
+    @Value("${app.projection.routed.topic:outbox.events}")
+    private String routedTopic;
+
+    @Value("${app.projection.dlt-suffix:-dlt}")
+    private String dltSuffix;
+
+    @Value("${app.projection.dlt-replay.batch-size:200}")
+    private int defaultBatchSize;
+
+    @Value("${app.projection.dlt-replay.rate-per-second:500}")
+    private int defaultRatePerSecond;
+
+    @Value("${app.projection.dlt-replay.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Inicia um replay em background e devolve o estado inicial do job.
+     */
+    public ReplayStatus start(ReplayRequest request) {
+        pruneFinished();
+        String topic = request.topic() != null
+                ? request.topic()
+                : (routed ? routedTopic : "outbox.public.event_outbox") + dltSuffix;
+        Job job = new Job(UUID.randomUUID(), topic, request,
+                request.batchSize() != null ? request.batchSize() : defaultBatchSize,
+                request.ratePerSecond() != null ? request.ratePerSecond() : defaultRatePerSecond);
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job));
+        log.info("♻️ Replay do DLT {} iniciado (job {}): {}", topic, job.id, request);
+        return job.status();
+    }
+
+    public Optional<ReplayStatus> status(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::status);
+    }
+
+    public List<ReplayStatus> list() {
+        pruneFinished();
+        return jobs.values().stream().map(Job::status).toList();
+    }
+
+    public boolean cancel(UUID jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    private void pruneFinished() {
+        Instant limit = Instant.now().minus(Duration.ofMinutes(jobRetentionMinutes));
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    private void run(Job job) {
+        Properties overrides = new Properties();
+        overrides.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(job.batchSize));
+        overrides.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(
+                "query-service-dlt-replay", "dlt-replay-", job.id.toString(), overrides)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(job.topic).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            // o intervalo termina nos offsets finais do início do job (o que chegar depois fica de fora)
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            seekToStart(consumer, partitions, job.request.from());
+            job.state = "RUNNING";
+
+            while (!job.cancelled && !reachedEnd(consumer, endOffsets)) {
+                waitWhileProjectionPaused(job);
+                List<ProjectionEvent> batch = new ArrayList<>();
+                for (ConsumerRecord<Object, Object> record : consumer.poll(POLL_TIMEOUT)) {
+                    TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+                    if (record.offset() >= endOffsets.getOrDefault(tp, 0L)) {
+                        continue;
+                    }
+                    job.scanned.incrementAndGet();
+                    @SuppressWarnings("unchecked")
+                    ConsumerRecord<String, String> dltRecord = (ConsumerRecord<String, String>) (ConsumerRecord<?, ?>) record;
+                    decodeMatching(job, dltRecord).ifPresent(batch::add);
+                }
+                if (!batch.isEmpty()) {
+                    project(job, batch);
+                    throttle(job);
+                }
+            }
+            job.state = job.cancelled ? "CANCELLED" : "COMPLETED";
+        } catch (Exception e) {
+            log.error("❌ Replay do DLT {} falhou (job {})", job.topic, job.id, e);
+            job.error = e.getMessage();
+            job.state = "FAILED";
+        } finally {
+            job.finishedAt = Instant.now();
+            log.info("♻️ Replay do DLT {} terminou (job {}): {}", job.topic, job.id, job.status());
+        }
+    }
+
+    private Optional<ProjectionEvent> decodeMatching(Job job, ConsumerRecord<String, String> record) {
+        ReplayRequest filter = job.request;
+        if (filter.to() != null && record.timestamp() > filter.to().toEpochMilli()) {
+            return Optional.empty();
+        }
+        Optional<ProjectionEvent> decoded;
+        try {
+            decoded = decoder.decodeAny(record);
+        } catch (Exception e) {
+            job.failed.incrementAndGet();
+            log.warn("⚠️ Mensagem inválida no DLT {}, offset={}: {}", record.topic(), record.offset(), e.getMessage());
+            return Optional.empty();
+        }
+        return decoded.filter(event -> filter.eventType() == null || filter.eventType().equals(event.eventType()))
+                .filter(event -> filter.aggregateId() == null || filter.aggregateId().equals(event.aggregateId()));
+    }
+
+    /**
+     * Grava o lote; se ele falhar, tenta evento a evento para não perder o restante.
+     */
+    private void project(Job job, List<ProjectionEvent> batch) {
+        try {
+            batchProjection.projectAll(batch);
+            job.replayed.addAndGet(batch.size());
+        } catch (Exception batchFailure) {
+            log.warn("⚠️ Lote de replay com {} eventos falhou, gravando um a um", batch.size());
+            for (ProjectionEvent event : batch) {
+                try {
+                    batchProjection.projectAll(List.of(event));
+                    job.replayed.incrementAndGet();
+                } catch (Exception e) {
+                    job.failed.incrementAndGet();
+                    log.error("❌ Replay de {} v{} do pedido {} falhou: {}",
+                            event.eventType(), event.version(), event.aggregateId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void seekToStart(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, Instant from) {
+        if (from == null) {
+            consumer.seekToBeginning(partitions);
+            return;
+        }
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(tp -> timestamps.put(tp, from.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        for (TopicPartition tp : partitions) {
+            OffsetAndTimestamp offset = offsets.get(tp);
+            if (offset != null) {
+                consumer.seek(tp, offset.offset());
+            } else {
+                consumer.seekToEnd(List.of(tp)); // nada depois de "from" nesta partição
+            }
+        }
+    }
+
+    private static boolean reachedEnd(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void waitWhileProjectionPaused(Job job) throws InterruptedException {
+        while (flowController.isPaused() && !job.cancelled) {
+            job.state = "WAITING";
+            Thread.sleep(POLL_TIMEOUT.toMillis());
+        }
+        job.state = "RUNNING";
+    }
+
+    /**
+     * Mantém a média em rate-per-second eventos gravados por segundo desde o início do job.
+     */
+    private static void throttle(Job job) throws InterruptedException {
+        if (job.ratePerSecond <= 0) {
+            return;
+        }
+        long expectedMillis = job.replayed.get() * 1000L / job.ratePerSecond;
+        long elapsedMillis = Duration.between(job.startedAt, Instant.now()).toMillis();
+        if (expectedMillis > elapsedMillis) {
+            Thread.sleep(expectedMillis - elapsedMillis);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        executor.shutdown();
+    }
+
+    /**
+     * Filtros e limites do replay; campos nulos usam o padrão (DLT da projeção ativa,
+     * todo o tópico, app.projection.dlt-replay.*).
+     */
+    public record ReplayRequest(String topic, Instant from, Instant to, String eventType, UUID aggregateId,
+                                Integer ratePerSecond, Integer batchSize) {
+    }
+
+    public record ReplayStatus(UUID jobId, String topic, String state, long scanned, long replayed, long failed,
+                               Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    private static final class Job {
+        private final UUID id;
+        private final String topic;
+        private final ReplayRequest request;
+        private final int batchSize;
+        private final int ratePerSecond;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile String state = "STARTING";
+        private volatile boolean cancelled;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Job(UUID id, String topic, ReplayRequest request, int batchSize, int ratePerSecond) {
+            this.id = id;
+            this.topic = topic;
+            this.request = request;
+            this.batchSize = batchSize;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        private ReplayStatus status() {
+            return new ReplayStatus(id, topic, state, scanned.get(), replayed.get(), failed.get(),
+                    startedAt, finishedAt, error);
+        }
+    }
+}
@@ -1,92 +1,107 @@
 package com.example.eventsourcing.query.application.projection;
 
-import com.example.eventsourcing.command.domain.pedido.events.*;
-import com.example.eventsourcing.query.application.PedidoReadModelRepository;
-import com.example.eventsourcing.query.application.infrastructure.outbox.OutboxClient;
-import com.example.eventsourcing.query.application.infrastructure.outbox.OutboxPendingAck;
-import com.example.eventsourcing.query.application.infrastructure.outbox.OutboxPendingAckRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Projeção registro a registro (uma transação por mensagem). Com
+ * app.projection.batch.enabled=true quem consome é o {@link BatchProjectionConsumer};
+ * com app.projection.parallel.enabled=true, o {@link ParallelProjectionConsumer}.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class KafkaEventConsumer {
+public class KafkaEventConsumer implements ConsumerSeekAware {
 
-    private final PedidoProjectionHandler pedidoProjectionHandler;
-    private final ObjectMapper objectMapper;
-    private final PedidoReadModelRepository readModelRepository;
-    private final OutboxClient outboxClient;
-    private final OutboxPendingAckRepository pendingAckRepository;
+    private final ProjectionEventProjector projector;
+    private final ProjectedVersionIndex versionIndex;
+    private final OutboxRecordDecoder decoder;
+    private final ParkingLot parkingLot;
+    private final ProjectionOffsetStore offsetStore;
 
+    @RetryableTopic(
+            attempts = "${app.projection.retry.attempts:3}",
+            backoff = @Backoff(
+                    delayExpression = "${app.projection.retry.delay-ms:2000}",
+                    multiplierExpression = "${app.projection.retry.multiplier:2.0}",
+                    maxDelayExpression = "${app.projection.retry.max-delay-ms:10000}"),
+            autoStartDltHandler = "#{!${app.projection.routed.enabled:false} && !${app.projection.batch.enabled:false} && !${app.projection.parallel.enabled:false}}"
+    )
     @KafkaListener(
+            id = "pedido-projection",
             topics = "outbox.public.event_outbox",
             groupId = "query-service-group",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{!${app.projection.routed.enabled:false} && !${app.projection.batch.enabled:false} && !${app.projection.parallel.enabled:false}}"
     )
     @Transactional
     public void listen(ConsumerRecord<String, String> record, Acknowledgment ack) {
         UUID outboxEventId = null;
         try {
-            if (record.value() == null) {
-                log.warn("⚠️ Tombstone recebido, ignorando");
-                ack.acknowledge();
-                return;
-            }
-
-            JsonNode rootNode = objectMapper.readTree(record.value());
-            if (!"c".equals(rootNode.get("op").asText())) {
-                ack.acknowledge();
-                return;
+            var decoded = decoder.decodeEnvelope(record);
+            if (decoded.isPresent()) {
+                outboxEventId = decoded.get().outboxEventId();
+                projector.project(decoded.get());
             }
 
-            JsonNode afterNode = rootNode.get("after");
-            outboxEventId = UUID.fromString(afterNode.get("id").asText());
-            String eventType = afterNode.get("event_type").asText();
-            String eventDataRaw = afterNode.get("event_data").asText();
-            JsonNode eventData = objectMapper.readTree(eventDataRaw);
-
-            UUID aggregateId = UUID.fromString(eventData.get("aggregateId").asText());
-            int eventVersion = eventData.get("version").asInt();
-
-            log.info("🎯 Processing {} v{} for pedido {}, outboxId={}",
-                    eventType, eventVersion, aggregateId, outboxEventId);
-
-            // deduplicação
-            var existingModel = readModelRepository.findById(aggregateId);
-            if (existingModel.isPresent() && existingModel.get().getVersion() >= eventVersion) {
-                log.debug("⏭️ Ignorando versão duplicada {}", eventVersion);
-                try {
-                    outboxClient.markAsProcessed(outboxEventId);
-                } catch (Exception ex) {
-                    log.warn("⚠️ Command-service offline (dup), salvando pendência {}", outboxEventId);
-                    pendingAckRepository.save(new OutboxPendingAck(outboxEventId));
-                }
-                ack.acknowledge();
-                return;
-            }
+            // offset gravado na mesma transação do read model
+            offsetStore.store(record);
+            ack.acknowledge();
 
-            // processa evento
-            processEventByType(eventType, eventData);
+        } catch (Exception e) {
+            log.error("💥 ERRO ao processar Kafka msg, outboxId={}", outboxEventId, e);
+            throw new RuntimeException("Erro no KafkaEventConsumer", e);
+        }
+    }
 
-            // tenta avisar command-service que foi processado
-            try {
-                outboxClient.markAsProcessed(outboxEventId);
-            } catch (Exception ex) {
-                log.warn("⚠️ Command-service offline, salvando pendência {}", outboxEventId);
-                pendingAckRepository.save(new OutboxPendingAck(outboxEventId));
+    /**
+     * Consome o tópico gerado pelo EventRouter do Debezium: chave = aggregate_id,
+     * tipo/versão/outboxId nos headers e o payload do evento já desembrulhado no corpo.
+     * A deduplicação e o roteamento usam só os headers; o corpo é lido uma única vez
+     * e apenas quando o evento vai ser aplicado.
+     */
+    @RetryableTopic(
+            attempts = "${app.projection.retry.attempts:3}",
+            backoff = @Backoff(
+                    delayExpression = "${app.projection.retry.delay-ms:2000}",
+                    multiplierExpression = "${app.projection.retry.multiplier:2.0}",
+                    maxDelayExpression = "${app.projection.retry.max-delay-ms:10000}"),
+            autoStartDltHandler = "#{${app.projection.routed.enabled:false} && !${app.projection.batch.enabled:false} && !${app.projection.parallel.enabled:false}}"
+    )
+    @KafkaListener(
+            id = "pedido-routed-projection",
+            topics = "${app.projection.routed.topic:outbox.events}",
+            groupId = "query-service-group",
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{${app.projection.routed.enabled:false} && !${app.projection.batch.enabled:false} && !${app.projection.parallel.enabled:false}}"
+    )
+    @Transactional
+    public void listenRouted(ConsumerRecord<String, String> record, Acknowledgment ack) {
+        UUID outboxEventId = null;
+        try {
+            var decoded = decoder.decodeRouted(record);
+            if (decoded.isPresent()) {
+                outboxEventId = decoded.get().outboxEventId();
+                projector.project(decoded.get());
             }
 
-            // confirma para Kafka (não vamos reprocessar indefinidamente)
+            // offset gravado na mesma transação do read model
+            offsetStore.store(record);
             ack.acknowledge();
 
         } catch (Exception e) {
@@ -95,23 +110,21 @@ public class KafkaEventConsumer {
         }
     }
 
-    private void processEventByType(String eventType, JsonNode eventData) throws Exception {
-        switch (eventType) {
-            case "PedidoCriado" -> pedidoProjectionHandler.handlePedidoCriado(
-                    objectMapper.convertValue(eventData, PedidoCriado.class));
-            case "PedidoAtualizado" -> pedidoProjectionHandler.handlePedidoAtualizado(
-                    objectMapper.convertValue(eventData, PedidoAtualizado.class));
-            case "PedidoCancelado" -> pedidoProjectionHandler.handlePedidoCancelado(
-                    objectMapper.convertValue(eventData, PedidoCancelado.class));
-            case "PedidoConfirmado" -> pedidoProjectionHandler.handlePedidoConfirmado(
-                    objectMapper.convertValue(eventData, PedidoConfirmado.class));
-            case "PedidoEmPreparacao" -> pedidoProjectionHandler.handlePedidoEmPreparacao(
-                    objectMapper.convertValue(eventData, PedidoEmPreparacao.class));
-            case "PedidoEnviado" -> pedidoProjectionHandler.handlePedidoEnviado(
-                    objectMapper.convertValue(eventData, PedidoEnviado.class));
-            case "PedidoEntregue" -> pedidoProjectionHandler.handlePedidoEntregue(
-                    objectMapper.convertValue(eventData, PedidoEntregue.class));
-            default -> log.warn("❓ Unknown event type: {}", eventType);
+    /**
+     * Registro que esgotou as tentativas: o pedido é estacionado e os próximos eventos
+     * dele vão direto para o parking lot, sem passar de novo por retry/DLT.
+     */
+    @DltHandler
+    public void onDeadLetter(ConsumerRecord<String, String> record,
+                             @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        if (!parkingLot.parkFailed(record, error)) {
+            log.error("☠️ Mensagem no DLT {}, offset={}: {}", record.topic(), record.offset(), error);
         }
     }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        versionIndex.warmAsync();
+        offsetStore.seekToStored(assignments, callback);
+    }
 }
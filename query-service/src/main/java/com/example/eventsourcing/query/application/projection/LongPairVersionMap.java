@@ -0,0 +1,113 @@
+package com.example.eventsourcing.query.application.projection;
+
+/**
+ * Mapa de endereçamento aberto (sondagem linear) de UUID, guardado como o par
+ * (msb, lsb), para a versão projetada. Usa só arrays de long, sem objetos por entrada.
+ * Versão 0 marca slot vazio. Não é thread-safe.
+ */
+final class LongPairVersionMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] msbs;
+    private long[] lsbs;
+    private long[] versions;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongPairVersionMap(int expectedSize) {
+        allocate(tableSizeFor(Math.max(expectedSize, 16)));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Versão associada ao par, ou 0 se ausente.
+     */
+    long get(long msb, long lsb) {
+        int slot = slot(msb, lsb);
+        while (versions[slot] != 0) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                return versions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Guarda a versão se for maior que a atual (versões &lt;= 0 são ignoradas).
+     */
+    void putMax(long msb, long lsb, long version) {
+        if (version <= 0) {
+            return;
+        }
+        int slot = slot(msb, lsb);
+        while (versions[slot] != 0) {
+            if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                if (version > versions[slot]) {
+                    versions[slot] = version;
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        msbs[slot] = msb;
+        lsbs[slot] = lsb;
+        versions[slot] = version;
+        if (++size > resizeAt) {
+            rehash(versions.length << 1);
+        }
+    }
+
+    /**
+     * Copia as entradas deste mapa para o outro, mantendo a maior versão.
+     */
+    void mergeInto(LongPairVersionMap other) {
+        for (int i = 0; i < versions.length; i++) {
+            if (versions[i] != 0) {
+                other.putMax(msbs[i], lsbs[i], versions[i]);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMsbs = msbs;
+        long[] oldLsbs = lsbs;
+        long[] oldVersions = versions;
+        allocate(capacity);
+        for (int i = 0; i < oldVersions.length; i++) {
+            if (oldVersions[i] != 0) {
+                putMax(oldMsbs[i], oldLsbs[i], oldVersions[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        versions = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long msb, long lsb) {
+        // fmix64 (MurmurHash3) para espalhar UUIDs v4 e sequenciais
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit((int) Math.ceil(expectedSize / LOAD_FACTOR) - 1) << 1;
+        return Math.max(capacity, 16);
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.command.domain.pedido.events.*;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Converte as mensagens do outbox em {@link ProjectionEvent} e depois no evento de domínio.
+ * O envelope do Debezium é percorrido em streaming (JsonParser), pulando before/source/
+ * metadados sem montar árvores, e o payload é desserializado uma única vez, direto no
+ * record do evento, com um ObjectReader pré-criado por tipo.
+ */
+@Component
+@Slf4j
+public class OutboxRecordDecoder {
+
+    private static final Map<String, Class<? extends Event>> EVENT_TYPES = Map.of(
+            "PedidoCriado", PedidoCriado.class,
+            "PedidoAtualizado", PedidoAtualizado.class,
+            "PedidoCancelado", PedidoCancelado.class,
+            "PedidoConfirmado", PedidoConfirmado.class,
+            "PedidoEmPreparacao", PedidoEmPreparacao.class,
+            "PedidoEnviado", PedidoEnviado.class,
+            "PedidoEntregue", PedidoEntregue.class
+    );
+
+    private final JsonFactory jsonFactory;
+    private final EventStoreReader eventStoreReader;
+    private final Map<String, ObjectReader> readers = new HashMap<>();
+
+    public OutboxRecordDecoder(ObjectMapper objectMapper, EventStoreReader eventStoreReader) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.eventStoreReader = eventStoreReader;
+        EVENT_TYPES.forEach((type, eventClass) -> readers.put(type, objectMapper.readerFor(eventClass)));
+    }
+
+    /**
+     * Envelope do Debezium ("op" + "after"). Vazio para tombstones e operações que não são insert.
+     */
+    public Optional<ProjectionEvent> decodeEnvelope(ConsumerRecord<String, String> record) throws IOException {
+        if (record.value() == null) {
+            log.warn("⚠️ Tombstone recebido, ignorando");
+            return Optional.empty();
+        }
+
+        String op = null;
+        EnvelopeFields after = null;
+        try (JsonParser parser = jsonFactory.createParser(record.value())) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("op".equals(field)) {
+                    op = parser.getValueAsString();
+                } else if ("after".equals(field) && value == JsonToken.START_OBJECT) {
+                    after = readAfter(parser);
+                } else {
+                    parser.skipChildren(); // before, source, ts_ms, transaction...
+                }
+            }
+        }
+
+        if (!"c".equals(op) || after == null) {
+            return Optional.empty();
+        }
+
+        // event_data vem inline ou, em payload-mode=reference, é lido do event_store
+        String payload = after.eventData != null ? after.eventData : loadFromEventStore(after.eventStoreId);
+
+        UUID aggregateId = after.aggregateId;
+        Long version = after.aggregateVersion;
+        if (aggregateId == null || version == null) {
+            // linhas anteriores à coluna aggregate_version: lê só os campos de topo do payload
+            PayloadKeys keys = readPayloadKeys(payload);
+            aggregateId = aggregateId != null ? aggregateId : keys.aggregateId;
+            version = version != null ? version : keys.version;
+        }
+
+        return Optional.of(new ProjectionEvent(
+                after.id,
+                aggregateId,
+                version,
+                after.eventType,
+                payload,
+                after.eventStoreId,
+                origin(record, after.createdAt, after.metadata)));
+    }
+
+    /**
+     * Mensagem do EventRouter: chave = aggregate_id, metadados nos headers. O corpo só é
+     * lido quando falta o header version (linhas gravadas antes da aggregate_version).
+     * Sem eventType/outboxId a mensagem falha (retry/DLT) em vez de ser confirmada.
+     */
+    public Optional<ProjectionEvent> decodeRouted(ConsumerRecord<String, String> record) throws IOException {
+        String eventType = header(record, "eventType");
+        String outboxId = header(record, "outboxId");
+        if (eventType == null || outboxId == null) {
+            throw new IllegalStateException("Routed outbox message without eventType/outboxId headers at offset "
+                    + record.offset());
+        }
+
+        String eventStoreId = header(record, "eventStoreId");
+        Long eventStoreRef = eventStoreId != null ? Long.valueOf(eventStoreId) : null;
+        String version = header(record, "version");
+        long aggregateVersion = version != null
+                ? Long.parseLong(version)
+                : readPayloadKeys(record.value() != null ? record.value() : loadFromEventStore(eventStoreRef)).version;
+
+        String createdAt = header(record, "createdAt");
+        String metadata = header(record, "metadata");
+        return Optional.of(new ProjectionEvent(
+                UUID.fromString(outboxId),
+                UUID.fromString(record.key()),
+                aggregateVersion,
+                eventType,
+                record.value(),
+                eventStoreRef,
+                origin(record, createdAt != null ? parseInstant(createdAt) : null, metadata)));
+    }
+
+    /**
+     * Decodifica sem saber o tópico de origem (ex.: DLT): mensagens do EventRouter
+     * têm o header eventType, as demais são envelopes do Debezium.
+     */
+    public Optional<ProjectionEvent> decodeAny(ConsumerRecord<String, String> record) throws IOException {
+        return header(record, "eventType") != null ? decodeRouted(record) : decodeEnvelope(record);
+    }
+
+    /**
+     * Evento de domínio correspondente, desserializado direto do payload em texto.
+     * Vazio para tipos desconhecidos.
+     */
+    public Optional<Event> toEvent(ProjectionEvent event) throws IOException {
+        ObjectReader reader = readers.get(event.eventType());
+        if (reader == null) {
+            log.warn("❓ Unknown event type: {}", event.eventType());
+            return Optional.empty();
+        }
+
+        String payload = event.payload() != null ? event.payload() : loadFromEventStore(event.eventStoreId());
+        return Optional.of(reader.readValue(payload));
+    }
+
+    private EnvelopeFields readAfter(JsonParser parser) throws IOException {
+        EnvelopeFields after = new EnvelopeFields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id" -> after.id = UUID.fromString(parser.getText());
+                case "aggregate_id" -> after.aggregateId = UUID.fromString(parser.getText());
+                case "event_type" -> after.eventType = parser.getText();
+                case "event_data" -> after.eventData = parser.getText();
+                case "event_store_id" -> after.eventStoreId = parser.getValueAsLong();
+                case "aggregate_version" -> after.aggregateVersion = parser.getValueAsLong();
+                case "event_metadata" -> {
+                    if (value == JsonToken.VALUE_STRING) {
+                        after.metadata = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "created_at" -> after.createdAt = value == JsonToken.VALUE_NUMBER_INT
+                        ? fromEpochNumber(parser.getLongValue())
+                        : parseInstant(parser.getText());
+                default -> parser.skipChildren();
+            }
+        }
+        return after;
+    }
+
+    private PayloadKeys readPayloadKeys(String payload) throws IOException {
+        PayloadKeys keys = new PayloadKeys();
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME && (keys.aggregateId == null || keys.version == null)) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("aggregateId".equals(field)) {
+                    keys.aggregateId = UUID.fromString(parser.getText());
+                } else if ("version".equals(field)) {
+                    keys.version = parser.getValueAsLong();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (keys.aggregateId == null || keys.version == null) {
+            throw new IllegalStateException("Outbox event payload without aggregateId/version");
+        }
+        return keys;
+    }
+
+    private String loadFromEventStore(Long eventStoreId) {
+        if (eventStoreId == null) {
+            throw new IllegalStateException("Outbox event without event_data nor event_store_id");
+        }
+        return eventStoreReader.findEventData(eventStoreId)
+                .orElseThrow(() -> new IllegalStateException("Event " + eventStoreId + " not found in event_store"));
+    }
+
+    private ProjectionEvent.Origin origin(ConsumerRecord<String, String> record, Instant outboxCreatedAt,
+                                          String metadata) {
+        return new ProjectionEvent.Origin(record.topic(), record.partition(), outboxCreatedAt,
+                record.timestamp(), System.currentTimeMillis(), readTrace(metadata));
+    }
+
+    /**
+     * Correlação do comando (event_metadata em JSON). Nula se ausente ou inválida:
+     * serve só para logs e métricas, nunca deve impedir a projeção.
+     */
+    private ProjectionEvent.Trace readTrace(String metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        String correlationId = null;
+        String causationId = null;
+        String requestId = null;
+        Instant commandStartedAt = null;
+        try (JsonParser parser = jsonFactory.createParser(metadata)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "correlationId" -> correlationId = parser.getValueAsString();
+                    case "causationId" -> causationId = parser.getValueAsString();
+                    case "requestId" -> requestId = parser.getValueAsString();
+                    case "commandStartedAt" -> commandStartedAt = parseInstant(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("event_metadata ignorado: {}", e.getMessage());
+            return null;
+        }
+        return correlationId == null && commandStartedAt == null
+                ? null
+                : new ProjectionEvent.Trace(correlationId, causationId, requestId, commandStartedAt);
+    }
+
+    /**
+     * created_at em ISO-8601 (timestamptz no Debezium e no relay interno); nulo se inválido,
+     * já que só é usado nas métricas de latência.
+     */
+    private static Instant parseInstant(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // created_at numérico (conforme time.precision.mode): micros ou millis desde a epoch
+    private static Instant fromEpochNumber(long value) {
+        return value > 100_000_000_000_000L
+                ? Instant.EPOCH.plus(value, ChronoUnit.MICROS)
+                : Instant.ofEpochMilli(value);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalStateException("Unexpected JSON token " + actual + ", expected " + expected);
+        }
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && header.value() != null
+                ? new String(header.value(), StandardCharsets.UTF_8)
+                : null;
+    }
+
+    private static final class EnvelopeFields {
+        private UUID id;
+        private UUID aggregateId;
+        private String eventType;
+        private String eventData;
+        private Long eventStoreId;
+        private Long aggregateVersion;
+        private Instant createdAt;
+        private String metadata;
+    }
+
+    private static final class PayloadKeys {
+        private UUID aggregateId;
+        private Long version;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.eventsourcing.query.application.projection;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projeção paralela dentro do consumer: cada registro é distribuído, pelo id do pedido,
+ * para uma de N lanes ordenadas (uma virtual thread cada). Eventos do mesmo pedido
+ * continuam em ordem, enquanto pedidos diferentes sobrepõem a espera por banco/HTTP.
+ * <p>
+ * O commit segue o low-watermark contíguo de cada partição ({@link PartitionWatermark}):
+ * o ACK do Kafka e o offset em projection_offsets só avançam até o último registro sem
+ * buracos antes dele. A lane grava esse offset na mesma transação da projeção, contando
+ * o próprio registro ({@link PartitionWatermark#nextOffsetIfDone}); quando um registro
+ * conclui depois dos seguintes, o offset liberado é gravado após o commit (tudo abaixo
+ * dele já está commitado).
+ * Falhas são repetidas na própria lane (backoff de app.projection.retry) e depois o
+ * pedido vai para o {@link ParkingLot} (ou o registro para o DLT, se desligado); se o
+ * banco/DLT também estiver indisponível, a lane repete até conseguir, sem liberar o offset.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ParallelProjectionConsumer implements ConsumerSeekAware {
+
+    private final OutboxRecordDecoder decoder;
+    private final ProjectionEventProjector projector;
+    private final TransactionTemplate transactionTemplate;
+    private final ProjectedVersionIndex versionIndex;
+    private final ProjectionOffsetStore offsetStore;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ParkingLot parkingLot;
+
+    @Value("${app.projection.routed.enabled:false}")
+    private boolean routed;
+
+    @Value("${app.projection.parallel.lanes:16}")
+    private int laneCount;
+
+    @Value("${app.projection.parallel.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${app.projection.retry.attempts:3}")
+    private int attempts;
+
+    @Value("${app.projection.retry.delay-ms:2000}")
+    private long delayMs;
+
+    @Value("${app.projection.retry.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${app.projection.retry.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    @Value("${app.projection.dlt-suffix:-dlt}")
+    private String dltSuffix;
+
+    private final Map<TopicPartition, PartitionWatermark> watermarks = new ConcurrentHashMap<>();
+
+    private ExecutorService[] lanes;
+    private Semaphore inFlight;
+    private DeadLetterPublishingRecoverer deadLetter;
+
+    @PostConstruct
+    void init() {
+        lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("projection-lane-" + i).factory());
+        }
+        inFlight = new Semaphore(maxInFlight);
+        deadLetter = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + dltSuffix, -1));
+    }
+
+    @KafkaListener(
+            id = "pedido-parallel-projection",
+            topics = "#{${app.projection.routed.enabled:false} ? '${app.projection.routed.topic:outbox.events}' : 'outbox.public.event_outbox'}",
+            groupId = "query-service-group",
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{${app.projection.parallel.enabled:false} && !${app.projection.batch.enabled:false}}"
+    )
+    public void listen(ConsumerRecord<String, String> record, Acknowledgment ack) throws InterruptedException {
+        TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+        PartitionWatermark watermark = watermarks.computeIfAbsent(tp, key -> new PartitionWatermark());
+        PartitionWatermark.Slot slot = watermark.register(record.offset(), ack);
+
+        Optional<ProjectionEvent> decoded;
+        try {
+            decoded = routed ? decoder.decodeRouted(record) : decoder.decodeEnvelope(record);
+        } catch (Exception e) {
+            log.error("💥 Mensagem inválida, offset={}, enviando ao DLT", record.offset(), e);
+            try {
+                deadLetter.accept(record, e);
+            } catch (RuntimeException dltFailure) {
+                // o container reentrega a partir deste registro; recomeça o watermark da partição
+                watermarks.remove(tp, watermark);
+                throw dltFailure;
+            }
+            complete(tp, watermark, slot);
+            return;
+        }
+        if (decoded.isEmpty()) {
+            complete(tp, watermark, slot);
+            return;
+        }
+
+        // backpressure: segura o poll quando há registros demais em processamento
+        inFlight.acquire();
+        ProjectionEvent event = decoded.get();
+        lanes[Math.floorMod(event.aggregateId().hashCode(), laneCount)].execute(() -> {
+            boolean finished = false;
+            try {
+                finished = projectWithRetry(record, event, tp, watermark, slot);
+            } finally {
+                inFlight.release();
+                if (finished) {
+                    complete(tp, watermark, slot);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // registros ainda em voo de uma atribuição anterior não confirmam mais nada
+        assignments.keySet().forEach(watermarks::remove);
+        versionIndex.warmAsync();
+        offsetStore.seekToStored(assignments, callback);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(watermarks::remove);
+    }
+
+    /**
+     * Devolve false se a lane foi interrompida (shutdown) antes de concluir o registro.
+     */
+    private boolean projectWithRetry(ConsumerRecord<String, String> record, ProjectionEvent event, TopicPartition tp,
+                                     PartitionWatermark watermark, PartitionWatermark.Slot slot) {
+        long backoff = delayMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        projector.project(event);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Invalid payload for outbox event " + event.outboxEventId(), e);
+                    }
+                    // offset na transação da projeção (partição revogada: o novo dono grava o dele)
+                    long nextOffset = watermark.nextOffsetIfDone(slot);
+                    if (nextOffset > 0 && watermarks.get(tp) == watermark) {
+                        offsetStore.store(tp, nextOffset);
+                    }
+                });
+                return true;
+            } catch (Exception e) {
+                if (attempt >= attempts) {
+                    log.error("💥 ERRO ao processar Kafka msg, outboxId={}", event.outboxEventId(), e);
+                    return recover(record, event, e);
+                }
+                log.warn("⚠️ Tentativa {}/{} falhou para outboxId={}, nova tentativa em {}ms",
+                        attempt, attempts, event.outboxEventId(), backoff);
+                if (!sleep(backoff)) {
+                    return false;
+                }
+                backoff = Math.min((long) (backoff * multiplier), maxDelayMs);
+            }
+        }
+    }
+
+    /**
+     * Estaciona o pedido (sem parking lot, envia o registro ao DLT), repetindo na lane até
+     * conseguir: o slot só é liberado depois disso, então o offset nunca passa de um
+     * registro que não foi aplicado nem guardado. Enquanto isso a lane e o watermark da
+     * partição ficam parados. Devolve false se a lane foi interrompida (shutdown).
+     */
+    private boolean recover(ConsumerRecord<String, String> record, ProjectionEvent event, Exception cause) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (!parkingLot.parkAggregate(List.of(event), cause.getMessage())) {
+                    deadLetter.accept(record, cause);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                log.error("❌ Falha ao estacionar/enviar ao DLT outboxId={} (tentativa {}), offset {} aguardando; " +
+                        "nova tentativa em {}ms", event.outboxEventId(), attempt, record.offset(), maxDelayMs, e);
+                if (!sleep(maxDelayMs)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void complete(TopicPartition tp, PartitionWatermark watermark, PartitionWatermark.Slot slot) {
+        PartitionWatermark.Slot released = watermark.complete(slot);
+        if (released == null || watermarks.get(tp) != watermark) {
+            return;
+        }
+        try {
+            offsetStore.store(tp, released.offset + 1);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao gravar offset {} de {}: {}", released.offset + 1, tp, e.getMessage());
+        }
+        // em MANUAL o commit é feito pela thread do consumer, mesmo com ACK de outra thread
+        released.ack.acknowledge();
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                lane.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parking lot por pedido: quando a projeção de um pedido falha de vez, o evento e
+ * todos os seguintes do mesmo pedido são gravados em projection_parked_events em vez
+ * de passarem por retry/DLT, e os demais pedidos seguem normalmente. O conjunto de
+ * pedidos estacionados fica em memória e é recarregado do banco periodicamente
+ * (outras instâncias / replays feitos em outro nó).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ParkingLot {
+
+    private static final String INSERT_SQL = "INSERT INTO projection_parked_events " +
+            "(aggregate_id, version, event_type, outbox_event_id, event_store_id, payload, error) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (aggregate_id, version) DO NOTHING";
+
+    private static final String PARK_IF_PARKED_SQL = "INSERT INTO projection_parked_events " +
+            "(aggregate_id, version, event_type, outbox_event_id, event_store_id, payload) " +
+            "SELECT CAST(? AS uuid), CAST(? AS bigint), ?, CAST(? AS uuid), CAST(? AS bigint), ? WHERE EXISTS (SELECT 1 FROM projection_parked_events " +
+            "WHERE aggregate_id = ? FOR SHARE) ON CONFLICT (aggregate_id, version) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxRecordDecoder decoder;
+
+    @Value("${app.projection.parking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.projection.routed.enabled:false}")
+    private boolean routed;
+
+    private volatile Set<UUID> parked = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.projection.parking.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Set<UUID> loaded = ConcurrentHashMap.newKeySet();
+            loaded.addAll(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT aggregate_id FROM projection_parked_events", UUID.class));
+            parked = loaded;
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao recarregar pedidos estacionados: {}", e.getMessage());
+        }
+    }
+
+    public boolean isParked(UUID aggregateId) {
+        return enabled && parked.contains(aggregateId);
+    }
+
+    /**
+     * Estaciona um evento de pedido já estacionado (na transação de quem consome). O
+     * conjunto em memória pode estar defasado (replay feito em outro nó), então o
+     * evento só entra se o pedido ainda tiver linhas em projection_parked_events; o
+     * FOR SHARE espera um replay em andamento terminar. Devolve false se o pedido não
+     * está mais estacionado (o chamador projeta o evento normalmente).
+     */
+    public boolean park(ProjectionEvent event) {
+        int inserted = jdbcTemplate.update(PARK_IF_PARKED_SQL,
+                event.aggregateId(),
+                event.version(),
+                event.eventType(),
+                event.outboxEventId(),
+                event.eventStoreId(),
+                event.payload(),
+                event.aggregateId());
+        if (inserted > 0) {
+            log.info("🅿️ {} v{} do pedido {} estacionado", event.eventType(), event.version(), event.aggregateId());
+            return true;
+        }
+        List<Long> existing = jdbcTemplate.queryForList(
+                "SELECT version FROM projection_parked_events WHERE aggregate_id = ? AND version = ?",
+                Long.class, event.aggregateId(), event.version());
+        if (!existing.isEmpty()) {
+            return true; // reentrega de um evento já estacionado
+        }
+        log.info("▶️ Pedido {} não está mais estacionado (liberado em outra instância)", event.aggregateId());
+        parked.remove(event.aggregateId());
+        return false;
+    }
+
+    /**
+     * Estaciona o pedido do registro que falhou. Devolve false se o parking lot estiver
+     * desligado ou o registro não puder ser decodificado (o chamador envia ao DLT).
+     */
+    public boolean parkFailed(ConsumerRecord<String, String> record, String error) {
+        if (!enabled) {
+            return false;
+        }
+        Optional<ProjectionEvent> decoded;
+        try {
+            decoded = routed ? decoder.decodeRouted(record) : decoder.decodeEnvelope(record);
+        } catch (Exception e) {
+            return false;
+        }
+        if (decoded.isEmpty()) {
+            return false;
+        }
+        return parkAggregate(List.of(decoded.get()), error);
+    }
+
+    /**
+     * Estaciona o pedido com os eventos informados (todos do mesmo pedido).
+     */
+    public boolean parkAggregate(List<ProjectionEvent> events, String error) {
+        if (!enabled || events.isEmpty()) {
+            return false;
+        }
+        events.forEach(event -> insert(event, error));
+        ProjectionEvent first = events.get(0);
+        parked.add(first.aggregateId());
+        log.error("🅿️ Pedido {} estacionado após falha em {} v{}: {}",
+                first.aggregateId(), first.eventType(), first.version(), error);
+        return true;
+    }
+
+    /**
+     * Eventos estacionados do pedido, em ordem de versão.
+     */
+    public List<ProjectionEvent> findParked(UUID aggregateId) {
+        return jdbcTemplate.query(
+                "SELECT outbox_event_id, version, event_type, payload, event_store_id " +
+                        "FROM projection_parked_events WHERE aggregate_id = ? ORDER BY version",
+                (rs, rowNum) -> new ProjectionEvent(
+                        rs.getObject(1, UUID.class),
+                        aggregateId,
+                        rs.getLong(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        (Long) rs.getObject(5)),
+                aggregateId);
+    }
+
+    public List<ParkedAggregate> summary() {
+        return jdbcTemplate.query(
+                "SELECT aggregate_id, COUNT(*), MIN(parked_at), " +
+                        "(SELECT p2.error FROM projection_parked_events p2 WHERE p2.aggregate_id = p.aggregate_id " +
+                        " AND p2.error IS NOT NULL ORDER BY p2.version LIMIT 1) " +
+                        "FROM projection_parked_events p GROUP BY aggregate_id ORDER BY MIN(parked_at)",
+                (rs, rowNum) -> new ParkedAggregate(
+                        rs.getObject(1, UUID.class),
+                        rs.getLong(2),
+                        rs.getTimestamp(3).toInstant(),
+                        rs.getString(4)));
+    }
+
+    /**
+     * Remove os eventos estacionados do pedido (na transação do replay); o pedido
+     * volta a ser projetado normalmente depois do commit.
+     */
+    public int release(UUID aggregateId) {
+        int deleted = jdbcTemplate.update("DELETE FROM projection_parked_events WHERE aggregate_id = ?", aggregateId);
+        TransactionHooks.afterCommit(() -> parked.remove(aggregateId));
+        return deleted;
+    }
+
+    private void insert(ProjectionEvent event, String error) {
+        jdbcTemplate.update(INSERT_SQL,
+                event.aggregateId(),
+                event.version(),
+                event.eventType(),
+                event.outboxEventId(),
+                event.eventStoreId(),
+                event.payload(),
+                error);
+    }
+
+    public record ParkedAggregate(UUID aggregateId, long events, Instant firstParkedAt, String error) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.eventsourcing.query.application.projection;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayDeque;
+
+/**
+ * Low-watermark de uma partição com processamento fora de ordem: os registros são
+ * registrados na ordem em que chegam do poll e só o prefixo contíguo de concluídos
+ * pode ser commitado. Um pedido lento segura apenas o commit, não as outras lanes.
+ */
+final class PartitionWatermark {
+
+    private final ArrayDeque<Slot> inFlight = new ArrayDeque<>();
+
+    synchronized Slot register(long offset, Acknowledgment ack) {
+        Slot slot = new Slot(offset, ack);
+        inFlight.addLast(slot);
+        return slot;
+    }
+
+    /**
+     * Marca o registro como concluído e devolve o último slot do prefixo contíguo
+     * liberado (o que deve ser confirmado), ou null se o watermark não avançou.
+     */
+    synchronized Slot complete(Slot slot) {
+        slot.done = true;
+        Slot released = null;
+        while (!inFlight.isEmpty() && inFlight.peekFirst().done) {
+            released = inFlight.pollFirst();
+        }
+        return released;
+    }
+
+    /**
+     * Offset seguinte ao prefixo contíguo que o slot liberaria se fosse concluído agora,
+     * ou -1 se ainda há registros anteriores em andamento. Slots só são concluídos depois
+     * do commit, então tudo abaixo desse offset já está gravado, exceto o próprio registro,
+     * e por isso ele pode ir para projection_offsets na transação desse registro.
+     */
+    synchronized long nextOffsetIfDone(Slot slot) {
+        long next = -1;
+        for (Slot current : inFlight) {
+            if (!current.done && current != slot) {
+                break;
+            }
+            next = current.offset + 1;
+        }
+        return next;
+    }
+
+    synchronized int pending() {
+        return inFlight.size();
+    }
+
+    static final class Slot {
+        final long offset;
+        final Acknowledgment ack;
+        private boolean done;
+
+        private Slot(long offset, Acknowledgment ack) {
+            this.offset = offset;
+            this.ack = ack;
+        }
+    }
+}
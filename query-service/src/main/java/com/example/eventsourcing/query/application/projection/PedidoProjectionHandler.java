@@ -3,17 +3,19 @@ package com.example.eventsourcing.query.application.projection;
 import com.example.eventsourcing.command.domain.Event;
 import com.example.eventsourcing.command.domain.pedido.events.*;
 import com.example.eventsourcing.query.application.PedidoReadModelRepository;
+import com.example.eventsourcing.query.application.query.PedidoReadCache;
 import com.example.eventsourcing.query.application.readmodel.EnderecoEntrega;
 import com.example.eventsourcing.query.application.readmodel.ItemPedido;
 import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
@@ -23,31 +25,21 @@ public class PedidoProjectionHandler {
 
     private final PedidoReadModelRepository readModelRepository;
     private final ObjectMapper objectMapper;
+    private final ProjectedVersionIndex versionIndex;
+    private final PedidoReadCache cache;
+    private final MeterRegistry meterRegistry;
 
     @Transactional
-    public void handlePedidoCriado(PedidoCriado evento) {
+    public Result handlePedidoCriado(PedidoCriado evento) {
         try {
-            PedidoReadModel readModel = new PedidoReadModel();
-            readModel.setId(evento.aggregateId());
-            readModel.setNumeroPedido(evento.numeroPedido());
-            readModel.setClienteId(evento.clienteId());
-            readModel.setClienteNome(evento.clienteNome());
-            readModel.setClienteEmail(evento.clienteEmail());
-            readModel.setStatus(evento.status()); // Usa o status do evento
-            readModel.setValorTotal(evento.valorTotal());
-            readModel.setDataCriacao(evento.timestamp());
-            readModel.setDataAtualizacao(evento.timestamp());
-            List<ItemPedido> itensReadModel = evento.itens().stream()
-                    .map(itemEvent -> ItemPedido.from(itemEvent))
-                    .collect(Collectors.toList());
-
-            readModel.setItens(itensReadModel);
-            // Converter o endereço
-            readModel.setEnderecoEntrega(convertEndereco(evento.enderecoEntrega()));            readModel.setVersion(evento.version());
-
-            readModelRepository.save(readModel);
-
-            log.debug("Created read model for pedido: {}", evento.aggregateId());
+            PedidoReadModel readModel = applyPedidoCriado(evento);
+            if (readModelRepository.insertIfAbsent(readModel) > 0) {
+                cache.putAfterCommit(readModel);
+                log.debug("Created read model for pedido: {}", evento.aggregateId());
+                return Result.APPLIED;
+            }
+            log.debug("Read model already exists for pedido: {}", evento.aggregateId());
+            return Result.ALREADY_APPLIED;
 
         } catch (Exception e) {
             log.error("Error handling PedidoCriado event", e);
@@ -76,33 +68,18 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoAtualizado(PedidoAtualizado evento) {
+    public Result handlePedidoAtualizado(PedidoAtualizado evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                // Converter os itens
-                List<ItemPedido> itensReadModel = evento.itens().stream()
-                        .map(itemEvent -> ItemPedido.from(itemEvent))
-                        .collect(Collectors.toList());
-
-                readModel.setItens(itensReadModel);
-
-                // Converter o endereço
-                readModel.setEnderecoEntrega(convertEndereco(evento.enderecoEntrega()));
-                readModel.setValorTotal(evento.valorTotal());
-                readModel.setObservacoes(evento.observacoes());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setVersion(evento.version());
-                readModel.setStatus(evento.currentStatus()); // Mantém o status atual do agregado
-
-                readModelRepository.save(readModel);
-
-                log.debug("Updated read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateDados(
+                    evento.aggregateId(),
+                    toItens(evento),
+                    convertEndereco(evento.enderecoEntrega()),
+                    evento.valorTotal(),
+                    evento.observacoes(),
+                    evento.currentStatus(), // Mantém o status atual do agregado
+                    evento.timestamp(),
+                    evento.version());
+            return logResult(rows, "Updated", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoAtualizado event", e);
@@ -111,24 +88,11 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoCancelado(PedidoCancelado evento) {
+    public Result handlePedidoCancelado(PedidoCancelado evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                readModel.setStatus(evento.status()); // Usa o status do evento
-                readModel.setDataCancelamento(evento.timestamp());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setObservacoes(evento.motivo());
-                readModel.setVersion(evento.version());
-
-                readModelRepository.save(readModel);
-
-                log.debug("Cancelled read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateCancelamento(
+                    evento.aggregateId(), evento.status().name(), evento.timestamp(), evento.motivo(), evento.version());
+            return logResult(rows, "Cancelled", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoCancelado event", e);
@@ -137,22 +101,11 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoConfirmado(PedidoConfirmado evento) {
+    public Result handlePedidoConfirmado(PedidoConfirmado evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                readModel.setStatus(evento.status());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setVersion(evento.version());
-
-                readModelRepository.save(readModel);
-
-                log.debug("Confirmed read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateStatus(
+                    evento.aggregateId(), evento.status().name(), evento.timestamp(), evento.version());
+            return logResult(rows, "Confirmed", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoConfirmado event", e);
@@ -161,22 +114,11 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoEmPreparacao(PedidoEmPreparacao evento) {
+    public Result handlePedidoEmPreparacao(PedidoEmPreparacao evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                readModel.setStatus(evento.status());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setVersion(evento.version());
-
-                readModelRepository.save(readModel);
-
-                log.debug("In preparation read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateStatus(
+                    evento.aggregateId(), evento.status().name(), evento.timestamp(), evento.version());
+            return logResult(rows, "In preparation", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoEmPreparacao event", e);
@@ -185,22 +127,11 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoEnviado(PedidoEnviado evento) {
+    public Result handlePedidoEnviado(PedidoEnviado evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                readModel.setStatus(evento.status());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setVersion(evento.version());
-
-                readModelRepository.save(readModel);
-
-                log.debug("Sent read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateStatus(
+                    evento.aggregateId(), evento.status().name(), evento.timestamp(), evento.version());
+            return logResult(rows, "Sent", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoEnviado event", e);
@@ -209,22 +140,11 @@ public class PedidoProjectionHandler {
     }
 
     @Transactional
-    public void handlePedidoEntregue(PedidoEntregue evento) {
+    public Result handlePedidoEntregue(PedidoEntregue evento) {
         try {
-            Optional<PedidoReadModel> readModelOpt = readModelRepository.findById(evento.aggregateId());
-
-            if (readModelOpt.isPresent()) {
-                PedidoReadModel readModel = readModelOpt.get();
-                readModel.setStatus(evento.status());
-                readModel.setDataAtualizacao(evento.timestamp());
-                readModel.setVersion(evento.version());
-
-                readModelRepository.save(readModel);
-
-                log.debug("Delivered read model for pedido: {}", evento.aggregateId());
-            } else {
-                log.warn("Read model not found for pedido: {}", evento.aggregateId());
-            }
+            int rows = readModelRepository.updateStatus(
+                    evento.aggregateId(), evento.status().name(), evento.timestamp(), evento.version());
+            return logResult(rows, "Delivered", evento);
 
         } catch (Exception e) {
             log.error("Error handling PedidoEntregue event", e);
@@ -232,6 +152,159 @@ public class PedidoProjectionHandler {
         }
     }
 
+    /**
+     * Com a linha alterada, o pedido sai do cache após o commit. 0 linhas: evento
+     * repetido/antigo (a linha existe com versão igual ou maior) ou pedido ainda não
+     * projetado, diferenciados por uma leitura da versão só neste caso.
+     */
+    private Result logResult(int rows, String action, Event evento) {
+        if (rows > 0) {
+            cache.evictAfterCommit(evento.getAggregateId(), evento.getVersion());
+            log.debug("{} read model for pedido: {}", action, evento.getAggregateId());
+            return Result.APPLIED;
+        }
+        if (readModelRepository.findVersionById(evento.getAggregateId()).isPresent()) {
+            log.debug("Read model not updated for pedido {} (version {} already applied)",
+                    evento.getAggregateId(), evento.getVersion());
+            return Result.ALREADY_APPLIED;
+        }
+        notFound(evento);
+        return Result.NOT_FOUND;
+    }
+
+    /**
+     * Evento de um pedido sem linha no read model: nunca deveria acontecer com a ordem
+     * por partição, então fica visível em log e métrica.
+     */
+    private void notFound(Event evento) {
+        log.warn("⚠️ Read model not found for pedido {} ({} v{})",
+                evento.getAggregateId(), evento.getClass().getSimpleName(), evento.getVersion());
+        Counter.builder("projection.read.model.not.found")
+                .tag("event_type", evento.getClass().getSimpleName())
+                .description("Events for a pedido with no read model row")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private List<ItemPedido> toItens(PedidoAtualizado evento) {
+        return evento.itens().stream()
+                .map(itemEvent -> ItemPedido.from(itemEvent))
+                .collect(Collectors.toList());
+    }
+
+    // ======================
+    //  APLICAÇÃO EM MEMÓRIA
+    // ======================
+
+    /**
+     * Aplica o evento sobre o estado atual (null se o pedido ainda não existe) e
+     * devolve o novo estado, sem acessar o banco. Usado pela projeção em lote.
+     * Devolve null quando o evento não pode ser aplicado.
+     */
+    public PedidoReadModel apply(PedidoReadModel current, Event event) {
+        if (event instanceof PedidoCriado e) {
+            return applyPedidoCriado(e);
+        }
+        if (current == null) {
+            notFound(event);
+            return null;
+        }
+        if (event instanceof PedidoAtualizado e) {
+            return applyPedidoAtualizado(current, e);
+        } else if (event instanceof PedidoCancelado e) {
+            return applyPedidoCancelado(current, e);
+        } else if (event instanceof PedidoConfirmado e) {
+            return applyPedidoConfirmado(current, e);
+        } else if (event instanceof PedidoEmPreparacao e) {
+            return applyPedidoEmPreparacao(current, e);
+        } else if (event instanceof PedidoEnviado e) {
+            return applyPedidoEnviado(current, e);
+        } else if (event instanceof PedidoEntregue e) {
+            return applyPedidoEntregue(current, e);
+        }
+        log.warn("Evento ignorado na projeção: {}", event.getClass().getSimpleName());
+        return null;
+    }
+
+    private PedidoReadModel applyPedidoCriado(PedidoCriado evento) {
+        PedidoReadModel readModel = new PedidoReadModel();
+        readModel.setId(evento.aggregateId());
+        readModel.setNumeroPedido(evento.numeroPedido());
+        readModel.setClienteId(evento.clienteId());
+        readModel.setClienteNome(evento.clienteNome());
+        readModel.setClienteEmail(evento.clienteEmail());
+        readModel.setStatus(evento.status()); // Usa o status do evento
+        readModel.setValorTotal(evento.valorTotal());
+        readModel.setDataCriacao(evento.timestamp());
+        readModel.setDataAtualizacao(evento.timestamp());
+        List<ItemPedido> itensReadModel = evento.itens().stream()
+                .map(itemEvent -> ItemPedido.from(itemEvent))
+                .collect(Collectors.toList());
+
+        readModel.setItens(itensReadModel);
+        // Converter o endereço
+        readModel.setEnderecoEntrega(convertEndereco(evento.enderecoEntrega()));
+        readModel.setVersion(evento.version());
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoAtualizado(PedidoReadModel readModel, PedidoAtualizado evento) {
+        // Converter os itens
+        readModel.setItens(toItens(evento));
+
+        // Converter o endereço
+        readModel.setEnderecoEntrega(convertEndereco(evento.enderecoEntrega()));
+        readModel.setValorTotal(evento.valorTotal());
+        readModel.setObservacoes(evento.observacoes());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setVersion(evento.version());
+        readModel.setStatus(evento.currentStatus()); // Mantém o status atual do agregado
+
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoCancelado(PedidoReadModel readModel, PedidoCancelado evento) {
+        readModel.setStatus(evento.status()); // Usa o status do evento
+        readModel.setDataCancelamento(evento.timestamp());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setObservacoes(evento.motivo());
+        readModel.setVersion(evento.version());
+
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoConfirmado(PedidoReadModel readModel, PedidoConfirmado evento) {
+        readModel.setStatus(evento.status());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setVersion(evento.version());
+
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoEmPreparacao(PedidoReadModel readModel, PedidoEmPreparacao evento) {
+        readModel.setStatus(evento.status());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setVersion(evento.version());
+
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoEnviado(PedidoReadModel readModel, PedidoEnviado evento) {
+        readModel.setStatus(evento.status());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setVersion(evento.version());
+
+        return readModel;
+    }
+
+    private PedidoReadModel applyPedidoEntregue(PedidoReadModel readModel, PedidoEntregue evento) {
+        readModel.setStatus(evento.status());
+        readModel.setDataAtualizacao(evento.timestamp());
+        readModel.setVersion(evento.version());
+
+        return readModel;
+    }
+
     // ======================
     //  MÉTODOS DE REBUILD
     // ======================
@@ -243,30 +316,44 @@ public class PedidoProjectionHandler {
     public void clear() {
         log.info("Limpando projeções de pedidos...");
         readModelRepository.deleteAll();
+        versionIndex.resetAfterCommit();
+        cache.invalidateAllAfterCommit();
     }
 
     /**
      * Aplica um evento genérico, delegando para o método correto.
      */
     @Transactional
-    public void onEvent(Event event) {
+    public Result onEvent(Event event) {
         if (event instanceof PedidoCriado e) {
-            handlePedidoCriado(e);
+            return handlePedidoCriado(e);
         } else if (event instanceof PedidoAtualizado e) {
-            handlePedidoAtualizado(e);
+            return handlePedidoAtualizado(e);
         } else if (event instanceof PedidoCancelado e) {
-            handlePedidoCancelado(e);
+            return handlePedidoCancelado(e);
         } else if (event instanceof PedidoConfirmado e) {
-            handlePedidoConfirmado(e);
+            return handlePedidoConfirmado(e);
         } else if (event instanceof PedidoEmPreparacao e) {
-            handlePedidoEmPreparacao(e);
+            return handlePedidoEmPreparacao(e);
         } else if (event instanceof PedidoEnviado e) {
-            handlePedidoEnviado(e);
+            return handlePedidoEnviado(e);
         } else if (event instanceof PedidoEntregue e) {
-            handlePedidoEntregue(e);
-        } else {
-            log.warn("Evento ignorado na projeção: {}", event.getClass().getSimpleName());
+            return handlePedidoEntregue(e);
         }
+        log.warn("Evento ignorado na projeção: {}", event.getClass().getSimpleName());
+        return Result.IGNORED;
+    }
+
+    /**
+     * Resultado de um evento no read model. NOT_FOUND (pedido ainda não projetado, ex.:
+     * PedidoCriado atrasado) não gravou nada: o índice de versões não avança e o outbox
+     * não é confirmado.
+     */
+    public enum Result {
+        APPLIED,
+        ALREADY_APPLIED,
+        NOT_FOUND,
+        IGNORED
     }
 
 }
@@ -0,0 +1,159 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Índice em memória pedido -> última versão projetada, usado para descartar eventos
+ * duplicados/antigos sem ir ao banco. É aquecido com um SELECT id, version (na
+ * subida e a cada atribuição de partições, numa thread própria para não segurar o
+ * consumer) e atualizado após cada commit da projeção. Enquanto a carga não termina
+ * o índice só fica incompleto: duplicados chegam ao banco, onde o WHERE version < :version
+ * os descarta.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectedVersionIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.projection.dedup.warm-min-interval-ms:5000}")
+    private long warmMinIntervalMs;
+
+    @Value("${app.projection.dedup.fetch-size:10000}")
+    private int fetchSize;
+
+    private final ExecutorService warmExecutor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("version-index-warm").factory());
+    private final AtomicBoolean warmQueued = new AtomicBoolean();
+
+    private LongPairVersionMap versions = new LongPairVersionMap(1024);
+    private long lastWarmAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        warmAsync();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        warmExecutor.shutdownNow();
+    }
+
+    /**
+     * Agenda a recarga em segundo plano (chamado pelos consumers ao receber partições).
+     * Pedidos feitos enquanto uma carga já está na fila são agrupados nela.
+     */
+    public void warmAsync() {
+        if (!warmQueued.compareAndSet(false, true)) {
+            return;
+        }
+        warmExecutor.execute(() -> {
+            warmQueued.set(false);
+            try {
+                warm();
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Falha ao aquecer o índice de versões: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Recarrega o índice do pedido_read. Chamadas seguidas (várias threads recebendo
+     * partições ao mesmo tempo) dentro de warm-min-interval-ms são ignoradas.
+     */
+    public void warm() {
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastWarmAt < warmMinIntervalMs) {
+                return;
+            }
+            lastWarmAt = System.currentTimeMillis();
+        }
+
+        long start = System.currentTimeMillis();
+        LongPairVersionMap loaded = new LongPairVersionMap(currentSize());
+
+        // transação read-only para o driver usar cursor (fetch-size) em vez de carregar tudo
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT id, version FROM pedido_read");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            UUID id = rs.getObject(1, UUID.class);
+            loaded.putMax(id.getMostSignificantBits(), id.getLeastSignificantBits(), rs.getLong(2));
+        }));
+
+        synchronized (this) {
+            // mantém o que foi confirmado enquanto o SELECT rodava
+            versions.mergeInto(loaded);
+            versions = loaded;
+        }
+        log.info("📇 Índice de versões aquecido com {} pedidos em {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Última versão projetada do pedido, ou 0 se desconhecida.
+     */
+    public synchronized long projectedVersion(UUID aggregateId) {
+        return versions.get(aggregateId.getMostSignificantBits(), aggregateId.getLeastSignificantBits());
+    }
+
+    /**
+     * true se a versão já foi projetada (duplicada ou antiga).
+     */
+    public boolean isProjected(UUID aggregateId, long version) {
+        return projectedVersion(aggregateId) >= version;
+    }
+
+    public synchronized void advance(UUID aggregateId, long version) {
+        versions.putMax(aggregateId.getMostSignificantBits(), aggregateId.getLeastSignificantBits(), version);
+    }
+
+    /**
+     * Atualiza o índice só depois do commit da transação corrente.
+     */
+    public void advanceAfterCommit(List<VersionedId> projected) {
+        TransactionHooks.afterCommit(() -> projected.forEach(entry -> advance(entry.aggregateId(), entry.version())));
+    }
+
+    public void advanceAfterCommit(UUID aggregateId, long version) {
+        advanceAfterCommit(List.of(new VersionedId(aggregateId, version)));
+    }
+
+    /**
+     * Esvazia o índice após o commit (ex.: projeções apagadas para rebuild).
+     */
+    public void resetAfterCommit() {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                versions = new LongPairVersionMap(1024);
+            }
+        });
+    }
+
+    private synchronized int currentSize() {
+        return versions.size();
+    }
+
+    public record VersionedId(UUID aggregateId, long version) {
+    }
+}
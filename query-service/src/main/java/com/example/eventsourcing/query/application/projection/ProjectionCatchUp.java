@@ -0,0 +1,202 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.query.application.PedidoReadModelRepository;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.example.eventsourcing.query.application.query.PedidoReadCache;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Catch-up da subida: se o checkpoint do pedido_read está muito atrás do event_store,
+ * os eventos que faltam são lidos direto do event_store em lotes grandes, aplicados em
+ * memória e gravados com upsert, antes de os listeners do Kafka começarem. O Kafka
+ * assume a partir daí; o que ele reentregar do intervalo já aplicado é descartado pelo
+ * índice de versões (só o ACK do outbox é enviado).
+ * <p>
+ * Pedidos estacionados e pedidos com um evento que não pôde ser aplicado ficam de fora
+ * do restante do catch-up (como no rebuild) e seguem pelo Kafka, onde o evento com
+ * problema passa por retry/parking; os demais pedidos continuam sendo aplicados.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionCatchUp implements SmartLifecycle {
+
+    private final EventStoreReader eventStoreReader;
+    private final PedidoReadModelRepository readModelRepository;
+    private final PedidoProjectionHandler pedidoProjectionHandler;
+    private final OutboxRecordDecoder decoder;
+    private final ProjectionCheckpointStore checkpointStore;
+    private final TransactionTemplate transactionTemplate;
+    private final PedidoReadCache cache;
+    private final ParkingLot parkingLot;
+
+    @Value("${app.projection.checkpoint.startup-catch-up:true}")
+    private boolean enabled;
+
+    @Value("${app.projection.checkpoint.min-gap:1000}")
+    private long minGap;
+
+    @Value("${app.projection.checkpoint.batch-size:5000}")
+    private int batchSize;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            catchUp();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Roda antes dos containers do Kafka (fase menor inicia primeiro).
+     */
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+
+    private void catchUp() {
+        long checkpoint;
+        long target;
+        try {
+            checkpoint = checkpointStore.load();
+            target = eventStoreReader.maxId();
+        } catch (Exception e) {
+            log.warn("⚠️ Checkpoint da projeção indisponível ({}), seguindo pelo Kafka", e.getMessage());
+            return;
+        }
+        if (target - checkpoint < minGap) {
+            log.info("📍 Checkpoint da projeção em {} ({} eventos atrás do event_store), seguindo pelo Kafka",
+                    checkpoint, target - checkpoint);
+            return;
+        }
+
+        log.info("⏩ Catch-up da projeção pelo event_store: posição {} -> {}", checkpoint, target);
+        long start = System.currentTimeMillis();
+        long position = checkpoint;
+        long applied = 0;
+        // roda antes do ApplicationReadyEvent que carrega os pedidos estacionados
+        parkingLot.refresh();
+        Set<UUID> skipped = new HashSet<>();
+        try {
+            while (position < target && running) {
+                List<EventStoreReader.AggregateEvent> batch = eventStoreReader.findEventsAfterPosition(position, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                applied += transactionTemplate.execute(status -> applyBatch(batch, skipped));
+                position = batch.get(batch.size() - 1).event().id();
+                log.info("⏩ Catch-up na posição {} de {} ({} pedidos gravados)", position, target, applied);
+            }
+            log.info("✅ Catch-up concluído na posição {}: {} pedidos gravados, {} deixados para o Kafka em {} ms",
+                    position, applied, skipped.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // o restante chega pelo Kafka, com retry/parking como em qualquer evento
+            log.error("❌ Catch-up interrompido na posição {}, seguindo pelo Kafka", position, e);
+        }
+    }
+
+    /**
+     * Aplica um lote na ordem global e grava a última versão de cada pedido e o checkpoint
+     * na mesma transação. Devolve a quantidade de pedidos gravados. Pedidos em skipped
+     * (e os estacionados) não são aplicados; um evento que falhar adiciona o pedido lá.
+     */
+    private int applyBatch(List<EventStoreReader.AggregateEvent> batch, Set<UUID> skipped) {
+        Set<UUID> aggregateIds = new LinkedHashSet<>();
+        batch.forEach(entry -> aggregateIds.add(entry.aggregateId()));
+
+        Map<UUID, PedidoReadModel> current = new HashMap<>();
+        readModelRepository.findAllDetached(aggregateIds).forEach(model -> current.put(model.getId(), model));
+
+        Map<UUID, PedidoReadModel> changed = new LinkedHashMap<>();
+        for (EventStoreReader.AggregateEvent entry : batch) {
+            UUID aggregateId = entry.aggregateId();
+            EventStoreReader.StoredEvent stored = entry.event();
+            if (skipped.contains(aggregateId)) {
+                continue;
+            }
+            if (parkingLot.isParked(aggregateId)) {
+                log.warn("🅿️ Pedido {} estacionado: fica de fora do catch-up", aggregateId);
+                skipped.add(aggregateId);
+                continue;
+            }
+            PedidoReadModel model = current.get(aggregateId);
+            long version = model != null ? model.getVersion() : 0L;
+            if (stored.version() <= version) {
+                continue;
+            }
+            try {
+                if (stored.version() > version + 1) {
+                    // versão anterior ao checkpoint ainda não projetada (pendente no Kafka)
+                    for (EventStoreReader.StoredEvent missing : eventStoreReader.findEventsAfter(aggregateId, version)) {
+                        if (missing.version() >= stored.version()) {
+                            break;
+                        }
+                        model = apply(model, aggregateId, missing);
+                    }
+                }
+                model = apply(model, aggregateId, stored);
+            } catch (Exception e) {
+                // o pedido para na última versão boa; o Kafka entrega o evento e cuida do retry/parking
+                skipped.add(aggregateId);
+                log.error("❌ Evento {} v{} do pedido {} não pôde ser aplicado no catch-up: {}",
+                        stored.eventType(), stored.version(), aggregateId, e.getMessage());
+                continue;
+            }
+            if (model != null) {
+                current.put(aggregateId, model);
+                changed.put(aggregateId, model);
+            }
+        }
+
+        int written = readModelRepository.upsertAll(changed.values());
+        changed.values().forEach(model -> cache.evictAfterCommit(model.getId(), model.getVersion()));
+        checkpointStore.store(batch.get(batch.size() - 1).event().id());
+        return written;
+    }
+
+    private PedidoReadModel apply(PedidoReadModel model, UUID aggregateId, EventStoreReader.StoredEvent stored) {
+        Optional<Event> event;
+        try {
+            event = decoder.toEvent(new ProjectionEvent(null, aggregateId, stored.version(), stored.eventType(),
+                    stored.eventData(), stored.id()));
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid payload for event_store event " + stored.id(), e);
+        }
+        if (event.isEmpty()) {
+            return model;
+        }
+        PedidoReadModel updated = pedidoProjectionHandler.apply(model, event.get());
+        return updated != null ? updated : model;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checkpoint do pedido_read na tabela projection_checkpoints: a maior posição do
+ * event_store já projetada. O consumo do Kafka atualiza a posição em memória após cada
+ * commit e ela é gravada periodicamente; o catch-up da subida e o rebuild gravam
+ * direto. Como as partições não são consumidas em ordem global, eventos abaixo do
+ * checkpoint ainda podem estar pendentes no Kafka, que continua responsável por eles.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionCheckpointStore {
+
+    public static final String PEDIDO_READ = "pedido_read";
+
+    private static final String UPSERT_SQL = "INSERT INTO projection_checkpoints " +
+            "(projection_name, last_event_id, updated_at) VALUES (?, ?, now()) " +
+            "ON CONFLICT (projection_name) DO UPDATE " +
+            "SET last_event_id = EXCLUDED.last_event_id, updated_at = EXCLUDED.updated_at " +
+            "WHERE projection_checkpoints.last_event_id < EXCLUDED.last_event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtomicLong projected = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+
+    /**
+     * Última posição gravada (0 se a projeção nunca registrou checkpoint).
+     */
+    public long load() {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT last_event_id FROM projection_checkpoints WHERE projection_name = ?",
+                Long.class, PEDIDO_READ);
+        long position = rows.isEmpty() ? 0 : rows.get(0);
+        projected.accumulateAndGet(position, Math::max);
+        flushed.accumulateAndGet(position, Math::max);
+        return position;
+    }
+
+    /**
+     * Grava a posição na transação corrente (só avança).
+     */
+    public void store(long position) {
+        jdbcTemplate.update(UPSERT_SQL, PEDIDO_READ, position);
+        advanceAfterCommit(position);
+        TransactionHooks.afterCommit(() -> flushed.accumulateAndGet(position, Math::max));
+    }
+
+    /**
+     * Registra a posição de um evento projetado; gravada no próximo flush após o commit.
+     */
+    public void advanceAfterCommit(Long eventStoreId) {
+        if (eventStoreId != null) {
+            TransactionHooks.afterCommit(() -> projected.accumulateAndGet(eventStoreId, Math::max));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.projection.checkpoint.flush-interval-ms:5000}")
+    public void flush() {
+        long position = projected.get();
+        if (position <= flushed.get()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(UPSERT_SQL, PEDIDO_READ, position);
+            flushed.accumulateAndGet(position, Math::max);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao gravar checkpoint da projeção ({}), nova tentativa no próximo ciclo", e.getMessage());
+        }
+    }
+}
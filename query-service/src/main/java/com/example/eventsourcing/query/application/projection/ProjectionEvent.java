@@ -0,0 +1,40 @@
+package com.example.eventsourcing.query.application.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Evento do outbox já decodificado da mensagem Kafka (envelope do Debezium ou
+ * tópico roteado). O payload ainda não foi desserializado: vem em texto (payload)
+ * ou, se nulo, é buscado no event_store pelo eventStoreId. A origem (partição e
+ * instantes de cada etapa) é nula para eventos lidos do event_store ou do parking lot.
+ */
+public record ProjectionEvent(
+        UUID outboxEventId,
+        UUID aggregateId,
+        long version,
+        String eventType,
+        String payload,
+        Long eventStoreId,
+        Origin origin) {
+
+    public ProjectionEvent(UUID outboxEventId, UUID aggregateId, long version, String eventType,
+                           String payload, Long eventStoreId) {
+        this(outboxEventId, aggregateId, version, eventType, payload, eventStoreId, null);
+    }
+
+    /**
+     * De onde e quando a mensagem veio: gravação no outbox (nulo se ausente na mensagem),
+     * timestamp do registro Kafka, momento em que foi consumida e a correlação do comando
+     * que gerou o evento (nula para eventos sem event_metadata).
+     */
+    public record Origin(String topic, int partition, Instant outboxCreatedAt, long kafkaTimestamp, long consumedAt,
+                         Trace trace) {
+    }
+
+    /**
+     * Metadados de correlação gravados pelo command-service em event_metadata.
+     */
+    public record Trace(String correlationId, String causationId, String requestId, Instant commandStartedAt) {
+    }
+}
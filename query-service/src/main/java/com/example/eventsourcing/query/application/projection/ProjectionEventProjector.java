@@ -0,0 +1,308 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.query.application.PedidoReadModelRepository;
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.example.eventsourcing.query.application.infrastructure.outbox.OutboxClient;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Aplica um único evento do outbox no read model: deduplica pelo índice de versões,
+ * delega ao {@link PedidoProjectionHandler} e agenda o ACK para depois do commit.
+ * Deve ser chamado dentro da transação de quem consome.
+ * <p>
+ * Eventos que chegam adiantados (buraco de versão) ficam no {@link ReorderBuffer} até a
+ * versão que falta ser projetada; se ela não chegar em app.projection.reorder.timeout-ms,
+ * o pedido é atualizado direto do event_store (catch-up). O evento retido também é
+ * gravado em projection_held_events ({@link ProjectionHeldEventStore}) na transação de
+ * quem consome, já que o offset passa dele nesse commit. Pedidos estacionados no
+ * {@link ParkingLot} não são projetados até o replay.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionEventProjector {
+
+    private static final String CORRELATION_ID = "correlationId";
+
+    private final PedidoProjectionHandler pedidoProjectionHandler;
+    private final ProjectedVersionIndex versionIndex;
+    private final OutboxClient outboxClient;
+    private final OutboxRecordDecoder decoder;
+    private final PedidoReadModelRepository readModelRepository;
+    private final EventStoreReader eventStoreReader;
+    private final TransactionTemplate transactionTemplate;
+    private final ParkingLot parkingLot;
+    private final ProjectionLatencyRecorder latencyRecorder;
+    private final ProjectionCheckpointStore checkpointStore;
+    private final ProjectionHeldEventStore heldEventStore;
+
+    @Value("${app.projection.reorder.enabled:true}")
+    private boolean reorderEnabled;
+
+    @Value("${app.projection.reorder.max-per-aggregate:100}")
+    private int maxPerAggregate;
+
+    @Value("${app.projection.reorder.max-events:10000}")
+    private int maxEvents;
+
+    @Value("${app.projection.reorder.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Value("${app.projection.reorder.orphan-after-ms:30000}")
+    private long orphanAfterMs;
+
+    private ReorderBuffer reorderBuffer;
+
+    @PostConstruct
+    void init() {
+        reorderBuffer = new ReorderBuffer(maxPerAggregate, maxEvents);
+    }
+
+    public void project(ProjectionEvent event) throws Exception {
+        // correlação do comando de origem nos logs da projeção
+        String correlationId = correlationId(event);
+        if (correlationId != null) {
+            MDC.put(CORRELATION_ID, correlationId);
+        }
+        try {
+            projectInternal(event);
+        } finally {
+            MDC.remove(CORRELATION_ID);
+        }
+    }
+
+    private void projectInternal(ProjectionEvent event) {
+        log.info("🎯 Processing {} v{} for pedido {}, outboxId={}",
+                event.eventType(), event.version(), event.aggregateId(), event.outboxEventId());
+
+        // deduplicação em memória (sem ir ao banco nem ler o corpo no tópico roteado)
+        if (versionIndex.isProjected(event.aggregateId(), event.version())) {
+            log.debug("⏭️ Ignorando versão duplicada {}", event.version());
+            outboxClient.markAsProcessed(event.outboxEventId());
+            return;
+        }
+
+        // pedido estacionado: os eventos seguintes esperam o replay, sem retry/DLT
+        if (parkingLot.isParked(event.aggregateId()) && parkingLot.park(event)) {
+            return;
+        }
+
+        // versão adiantada: espera a anterior em vez de aplicar fora de ordem
+        if (reorderEnabled && isAhead(event) && reorderBuffer.hold(event, System.currentTimeMillis())) {
+            heldEventStore.save(event);
+            log.info("⏸️ {} v{} do pedido {} aguardando versões anteriores",
+                    event.eventType(), event.version(), event.aggregateId());
+            return;
+        }
+
+        apply(event);
+
+        // eventos que estavam esperando por esta versão
+        List<ProjectionEvent> next = reorderBuffer.takeContiguous(event.aggregateId(), event.version());
+        if (!next.isEmpty()) {
+            restoreOnRollback(next);
+            for (ProjectionEvent waiting : next) {
+                log.info("▶️ Aplicando {} v{} do pedido {} (buffer de reordenação)",
+                        waiting.eventType(), waiting.version(), waiting.aggregateId());
+                apply(waiting);
+            }
+            heldEventStore.deleteUpTo(event.aggregateId(), next.get(next.size() - 1).version());
+        }
+    }
+
+    /**
+     * Pedidos com eventos esperando além do tempo limite são atualizados pelo event_store.
+     */
+    @Scheduled(fixedDelayString = "${app.projection.reorder.sweep-interval-ms:500}")
+    public void catchUpExpired() {
+        if (reorderBuffer.size() == 0) {
+            return;
+        }
+        for (UUID aggregateId : reorderBuffer.expired(System.currentTimeMillis() - timeoutMs)) {
+            catchUp(aggregateId);
+        }
+    }
+
+    private void catchUp(UUID aggregateId) {
+        List<ProjectionEvent> held = reorderBuffer.takeAll(aggregateId);
+        if (held.isEmpty()) {
+            return;
+        }
+        try {
+            int applied = transactionTemplate.execute(status -> {
+                int count = applyFromEventStore(aggregateId);
+                // os eventos que esperavam estão no event_store, logo já foram cobertos
+                held.forEach(event -> outboxClient.markAsProcessed(event.outboxEventId()));
+                heldEventStore.deleteAll(aggregateId);
+                return count;
+            });
+            log.warn("🔄 Catch-up do pedido {}: {} eventos aplicados a partir do event_store", aggregateId, applied);
+        } catch (Exception e) {
+            // pedido com problema: estaciona em vez de tentar de novo a cada ciclo
+            if (!parkingLot.parkAggregate(held, e.getMessage())) {
+                log.error("❌ Falha no catch-up do pedido {}, nova tentativa no próximo ciclo", aggregateId, e);
+                reorderBuffer.restore(held, System.currentTimeMillis() - timeoutMs);
+                return;
+            }
+            heldEventStore.deleteAll(aggregateId);
+        }
+    }
+
+    /**
+     * Eventos retidos por uma instância que caiu (ou perdeu a partição) antes do catch-up:
+     * o offset já passou deles, então o pedido é atualizado pelo event_store a partir das
+     * linhas de projection_held_events.
+     */
+    @Scheduled(fixedDelayString = "${app.projection.reorder.orphan-sweep-interval-ms:10000}")
+    public void recoverOrphans() {
+        if (!reorderEnabled) {
+            return;
+        }
+        List<UUID> orphans;
+        try {
+            orphans = heldEventStore.findOrphans(orphanAfterMs, 100);
+        } catch (Exception e) {
+            log.warn("⚠️ Falha ao buscar eventos retidos órfãos: {}", e.getMessage());
+            return;
+        }
+        for (UUID aggregateId : orphans) {
+            if (reorderBuffer.contains(aggregateId) || parkingLot.isParked(aggregateId)) {
+                continue;
+            }
+            try {
+                Integer applied = transactionTemplate.execute(status -> {
+                    List<UUID> outboxIds = heldEventStore.claim(aggregateId);
+                    if (outboxIds.isEmpty()) {
+                        return null;
+                    }
+                    int count = applyFromEventStore(aggregateId);
+                    outboxIds.stream().filter(Objects::nonNull).forEach(outboxClient::markAsProcessed);
+                    return count;
+                });
+                if (applied != null) {
+                    log.warn("🔄 Eventos retidos órfãos do pedido {} recuperados: {} eventos aplicados a partir do event_store",
+                            aggregateId, applied);
+                }
+            } catch (Exception e) {
+                log.error("❌ Falha ao recuperar eventos retidos do pedido {}", aggregateId, e);
+            }
+        }
+    }
+
+    /**
+     * Reaplica um pedido estacionado a partir do event_store (fonte da verdade) e o
+     * libera; os eventos estacionados são confirmados no outbox após o commit.
+     */
+    public int replayParked(UUID aggregateId) {
+        int applied = transactionTemplate.execute(status -> {
+            List<ProjectionEvent> parkedEvents = parkingLot.findParked(aggregateId);
+            int count = applyFromEventStore(aggregateId);
+            parkedEvents.stream()
+                    .filter(event -> event.outboxEventId() != null)
+                    .forEach(event -> outboxClient.markAsProcessed(event.outboxEventId()));
+            parkingLot.release(aggregateId);
+            return count;
+        });
+        log.info("▶️ Pedido {} reaplicado: {} eventos lidos do event_store", aggregateId, applied);
+        return applied;
+    }
+
+    /**
+     * Aplica, na transação corrente, os eventos do event_store posteriores à versão gravada.
+     */
+    private int applyFromEventStore(UUID aggregateId) {
+        long projected = readModelRepository.findVersionById(aggregateId).orElse(0L);
+        List<EventStoreReader.StoredEvent> missing = eventStoreReader.findEventsAfter(aggregateId, projected);
+        for (EventStoreReader.StoredEvent stored : missing) {
+            applyEvent(new ProjectionEvent(null, aggregateId, stored.version(), stored.eventType(),
+                    stored.eventData(), stored.id()));
+        }
+        return missing.size();
+    }
+
+    private static String correlationId(ProjectionEvent event) {
+        return event.origin() != null && event.origin().trace() != null ? event.origin().trace().correlationId() : null;
+    }
+
+    private boolean isAhead(ProjectionEvent event) {
+        if (event.version() <= versionIndex.projectedVersion(event.aggregateId()) + 1) {
+            return false;
+        }
+        // o índice pode estar atrasado (outra instância projetou): confirma no banco
+        long projected = readModelRepository.findVersionById(event.aggregateId()).orElse(0L);
+        versionIndex.advance(event.aggregateId(), projected);
+        return event.version() > projected + 1;
+    }
+
+    /**
+     * Aplica o evento vindo do tópico. Se o pedido ainda não foi projetado (ex.: status
+     * antes do PedidoCriado, com a reordenação desligada ou o buffer cheio), ele é
+     * montado a partir do event_store, que já contém este evento.
+     */
+    private void apply(ProjectionEvent event) {
+        if (applyEvent(event) != PedidoProjectionHandler.Result.NOT_FOUND) {
+            return;
+        }
+        int applied = applyFromEventStore(event.aggregateId());
+        if (readModelRepository.findVersionById(event.aggregateId()).orElse(0L) < event.version()) {
+            throw new IllegalStateException("Pedido " + event.aggregateId() + " not found for "
+                    + event.eventType() + " v" + event.version());
+        }
+        log.warn("🔄 Pedido {} ainda não projetado ao receber {} v{}: {} eventos aplicados a partir do event_store",
+                event.aggregateId(), event.eventType(), event.version(), applied);
+        if (event.outboxEventId() != null) {
+            outboxClient.markAsProcessed(event.outboxEventId());
+        }
+    }
+
+    /**
+     * Aplica um evento no read model. O índice de versões, o checkpoint e o ACK do
+     * outbox só avançam se o evento está refletido na linha (gravado agora ou antes).
+     */
+    private PedidoProjectionHandler.Result applyEvent(ProjectionEvent event) {
+        PedidoProjectionHandler.Result result;
+        try {
+            Optional<Event> domainEvent = decoder.toEvent(event);
+            result = domainEvent.isPresent()
+                    ? pedidoProjectionHandler.onEvent(domainEvent.get())
+                    : PedidoProjectionHandler.Result.IGNORED;
+            if (result == PedidoProjectionHandler.Result.APPLIED) {
+                latencyRecorder.recordAfterCommit(event, domainEvent.get().getTimestamp());
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid payload for event " + event.eventType() + " v" + event.version(), e);
+        }
+        if (result == PedidoProjectionHandler.Result.NOT_FOUND) {
+            return result;
+        }
+
+        versionIndex.advanceAfterCommit(event.aggregateId(), event.version());
+        checkpointStore.advanceAfterCommit(event.eventStoreId());
+
+        // avisa command-service que foi processado (ACK enviado após o commit)
+        if (event.outboxEventId() != null) {
+            outboxClient.markAsProcessed(event.outboxEventId());
+        }
+        return result;
+    }
+
+    private void restoreOnRollback(List<ProjectionEvent> taken) {
+        TransactionHooks.afterRollback(() -> reorderBuffer.restore(taken, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controle de fluxo da projeção. A cada intervalo observa o lag do consumer, o tempo
+ * de uso das conexões (duração das transações da projeção) e a saturação do pool do
+ * Hikari, e decide:
+ * <ul>
+ *   <li>pausar os containers quando o banco está saturado (em vez de estourar timeouts
+ *       de transação) e retomá-los quando ele se recupera;</li>
+ *   <li>aumentar a concorrência e o max.poll.records durante backlogs com o banco
+ *       saudável, e reduzi-los quando o lag volta ao normal, nunca abaixo dos valores
+ *       configurados (spring.kafka.listener.concurrency e max.poll.records).</li>
+ * </ul>
+ * Sem métrica de lag (consumers recém-criados, ainda sem fetch) nada é redimensionado:
+ * ausência de dados não conta como lag baixo.
+ * Concorrência e max.poll.records só valem para consumers novos, então o container é
+ * reiniciado (rebalance) a cada ajuste, no máximo uma vez por scale-cooldown-ms.
+ * As decisões ficam expostas em projection.flow.*.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionFlowController {
+
+    private static final String LAG_METRIC = "records-lag-max";
+    private static final String LAG_GROUP = "consumer-fetch-manager-metrics";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.projection.flow.enabled:true}")
+    private boolean enabled;
+
+    @Value("#{'${app.projection.flow.containers:pedido-projection,pedido-routed-projection,pedido-batch-projection,pedido-parallel-projection}'.split(',')}")
+    private Set<String> containerIds;
+
+    @Value("${app.projection.flow.pool-saturation-ratio:0.9}")
+    private double saturationRatio;
+
+    @Value("${app.projection.flow.pool-resume-ratio:0.6}")
+    private double resumeRatio;
+
+    @Value("${app.projection.flow.max-latency-ms:500}")
+    private double maxLatencyMs;
+
+    @Value("${app.projection.flow.lag-high:1000}")
+    private long lagHigh;
+
+    @Value("${app.projection.flow.lag-low:100}")
+    private long lagLow;
+
+    @Value("${app.projection.flow.max-concurrency:6}")
+    private int maxConcurrency;
+
+    @Value("${app.projection.flow.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${app.projection.flow.scale-cooldown-ms:60000}")
+    private long scaleCooldownMs;
+
+    @Value("${spring.kafka.listener.concurrency:3}")
+    private int initialConcurrency;
+
+    @Value("${spring.kafka.consumer.properties.max.poll.records:50}")
+    private int initialPollRecords;
+
+    private final AtomicInteger paused = new AtomicInteger();
+    private final AtomicInteger concurrency = new AtomicInteger();
+    private final AtomicInteger pollRecords = new AtomicInteger();
+    private final AtomicLong lag = new AtomicLong();
+    private final AtomicLong latencyMicros = new AtomicLong();
+
+    private long lastScaleAt;
+    private long lastUsageCount;
+    private double lastUsageTotalMs;
+
+    @PostConstruct
+    void registerMeters() {
+        concurrency.set(initialConcurrency);
+        pollRecords.set(initialPollRecords);
+
+        Gauge.builder("projection.flow.paused", paused, AtomicInteger::get)
+                .description("1 while projection consumers are paused by the flow controller")
+                .register(meterRegistry);
+        Gauge.builder("projection.flow.concurrency", concurrency, AtomicInteger::get)
+                .description("Listener concurrency chosen by the flow controller")
+                .register(meterRegistry);
+        Gauge.builder("projection.flow.max.poll.records", pollRecords, AtomicInteger::get)
+                .description("max.poll.records chosen by the flow controller")
+                .register(meterRegistry);
+        Gauge.builder("projection.flow.lag", lag, AtomicLong::get)
+                .description("Max records lag observed on the projection consumers")
+                .register(meterRegistry);
+        Gauge.builder("projection.flow.latency", latencyMicros, value -> value.get() / 1000.0)
+                .description("Mean connection usage time in the last interval")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.projection.flow.interval-ms:5000}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        List<ConcurrentMessageListenerContainer<?, ?>> containers = activeContainers();
+        if (containers.isEmpty()) {
+            return;
+        }
+
+        HikariDataSource hikari = hikari();
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool == null) {
+            return;
+        }
+        int maxPool = hikari.getMaximumPoolSize();
+        int active = pool.getActiveConnections();
+        int waiting = pool.getThreadsAwaitingConnection();
+        double latency = windowLatencyMs();
+        long currentLag = maxLag(containers);
+        lag.set(Math.max(currentLag, 0));
+        latencyMicros.set((long) (latency * 1000));
+
+        boolean saturated = waiting > 0 || active >= maxPool * saturationRatio || latency > maxLatencyMs;
+        boolean healthy = waiting == 0 && active < maxPool * resumeRatio && latency <= maxLatencyMs;
+
+        if (saturated && paused.get() == 0) {
+            log.warn("⏸️ Banco saturado (ativas={}/{}, aguardando={}, uso médio={}ms), pausando a projeção",
+                    active, maxPool, waiting, Math.round(latency));
+            containers.forEach(MessageListenerContainer::pause);
+            paused.set(1);
+            decision("pause");
+            return;
+        }
+        if (paused.get() == 1) {
+            if (healthy) {
+                log.info("▶️ Banco recuperado (ativas={}/{}), retomando a projeção", active, maxPool);
+                containers.forEach(MessageListenerContainer::resume);
+                paused.set(0);
+                decision("resume");
+            }
+            return;
+        }
+
+        if (currentLag < 0 || System.currentTimeMillis() - lastScaleAt < scaleCooldownMs) {
+            return;
+        }
+        if (currentLag > lagHigh && healthy && concurrency.get() < maxConcurrency) {
+            log.info("📈 Lag de {} registros, aumentando a projeção", currentLag);
+            scale(containers, concurrency.get() + 1, Math.min(maxPollRecords, pollRecords.get() * 2));
+            decision("scale_up");
+        } else if (currentLag < lagLow && concurrency.get() > initialConcurrency) {
+            log.info("📉 Lag de {} registros, reduzindo a projeção", currentLag);
+            scale(containers, concurrency.get() - 1, Math.max(initialPollRecords, pollRecords.get() / 2));
+            decision("scale_down");
+        }
+    }
+
+    /**
+     * true enquanto a projeção está pausada por saturação do banco.
+     */
+    public boolean isPaused() {
+        return paused.get() == 1;
+    }
+
+    private void scale(List<ConcurrentMessageListenerContainer<?, ?>> containers, int newConcurrency, int newPollRecords) {
+        for (ConcurrentMessageListenerContainer<?, ?> container : containers) {
+            // concorrência e max.poll.records só valem para consumers criados depois do restart
+            container.stop();
+            container.setConcurrency(newConcurrency);
+            container.getContainerProperties().getKafkaConsumerProperties()
+                    .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(newPollRecords));
+            container.start();
+        }
+        log.info("⚙️ Projeção ajustada: concorrência {} -> {}, max.poll.records {} -> {}",
+                concurrency.get(), newConcurrency, pollRecords.get(), newPollRecords);
+        concurrency.set(newConcurrency);
+        pollRecords.set(newPollRecords);
+        lastScaleAt = System.currentTimeMillis();
+    }
+
+    private List<ConcurrentMessageListenerContainer<?, ?>> activeContainers() {
+        List<ConcurrentMessageListenerContainer<?, ?>> containers = new ArrayList<>();
+        for (String id : containerIds) {
+            MessageListenerContainer container = registry.getListenerContainer(id.trim());
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent && container.isRunning()) {
+                containers.add(concurrent);
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * Maior records-lag-max entre os consumers, ou -1 se nenhum publicou a métrica ainda.
+     */
+    private long maxLag(List<ConcurrentMessageListenerContainer<?, ?>> containers) {
+        double max = -1;
+        for (MessageListenerContainer container : containers) {
+            for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+                for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+                    MetricName name = entry.getKey();
+                    if (LAG_METRIC.equals(name.name()) && LAG_GROUP.equals(name.group())
+                            && entry.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                        max = Math.max(max, value);
+                    }
+                }
+            }
+        }
+        return (long) max;
+    }
+
+    /**
+     * Tempo médio de uso das conexões desde a última avaliação (cada projeção é uma
+     * transação, então acompanha a latência de escrita do read model).
+     */
+    private double windowLatencyMs() {
+        Timer usage = meterRegistry.find("hikaricp.connections.usage").timer();
+        if (usage == null) {
+            return 0;
+        }
+        long count = usage.count();
+        double totalMs = usage.totalTime(TimeUnit.MILLISECONDS);
+        long deltaCount = count - lastUsageCount;
+        double deltaMs = totalMs - lastUsageTotalMs;
+        lastUsageCount = count;
+        lastUsageTotalMs = totalMs;
+        return deltaCount > 0 ? deltaMs / deltaCount : 0;
+    }
+
+    private HikariDataSource hikari() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private void decision(String action) {
+        Counter.builder("projection.flow.decisions")
+                .description("Flow controller decisions")
+                .tag("action", action)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.eventsourcing.query.application.projection;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registro durável dos eventos retidos no {@link ReorderBuffer}. O offset do Kafka
+ * passa do evento retido assim que a transação que o guardou faz commit, então a
+ * linha é gravada nessa mesma transação: se a instância cair antes do catch-up,
+ * qualquer instância recupera o pedido pelo event_store a partir destas linhas.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProjectionHeldEventStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Grava o evento retido (deve rodar dentro da transação da projeção).
+     */
+    public void save(ProjectionEvent event) {
+        jdbcTemplate.update("INSERT INTO projection_held_events (aggregate_id, version, outbox_event_id) " +
+                        "VALUES (?, ?, ?) ON CONFLICT (aggregate_id, version) DO NOTHING",
+                event.aggregateId(), event.version(), event.outboxEventId());
+    }
+
+    /**
+     * Remove os eventos do pedido até a versão informada (já aplicados).
+     */
+    public void deleteUpTo(UUID aggregateId, long version) {
+        jdbcTemplate.update("DELETE FROM projection_held_events WHERE aggregate_id = ? AND version <= ?",
+                aggregateId, version);
+    }
+
+    public void deleteAll(UUID aggregateId) {
+        jdbcTemplate.update("DELETE FROM projection_held_events WHERE aggregate_id = ?", aggregateId);
+    }
+
+    /**
+     * Pedidos com eventos retidos há mais de olderThanMs (instância que caiu ou perdeu a partição).
+     */
+    public List<UUID> findOrphans(long olderThanMs, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT aggregate_id FROM projection_held_events " +
+                        "WHERE held_at < now() - ? * INTERVAL '1 millisecond' " +
+                        "GROUP BY aggregate_id ORDER BY MIN(held_at) LIMIT ?",
+                UUID.class, olderThanMs, limit);
+    }
+
+    /**
+     * Trava e remove as linhas do pedido, devolvendo os outboxIds a confirmar. Vazio se
+     * outra instância já está recuperando o mesmo pedido (SKIP LOCKED).
+     */
+    public List<UUID> claim(UUID aggregateId) {
+        List<UUID> outboxIds = jdbcTemplate.queryForList(
+                "SELECT outbox_event_id FROM projection_held_events WHERE aggregate_id = ? FOR UPDATE SKIP LOCKED",
+                UUID.class, aggregateId);
+        if (!outboxIds.isEmpty()) {
+            deleteAll(aggregateId);
+        }
+        return outboxIds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.eventsourcing.query.application.projection;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+/**
+ * Container factory da projeção em lote. Retry topics não suportam listeners em
+ * lote, então aqui as falhas são repetidas no próprio consumer (backoff) e depois o
+ * pedido vai para o {@link ParkingLot}; o que não puder ser estacionado é publicado no
+ * mesmo DLT dos listeners registro a registro.
+ */
+@Configuration
+public class ProjectionKafkaConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<String, String> kafkaTemplate,
+            @Value("${app.projection.retry.attempts:3}") int attempts,
+            @Value("${app.projection.retry.delay-ms:2000}") long delayMs,
+            @Value("${app.projection.retry.multiplier:2.0}") double multiplier,
+            @Value("${app.projection.retry.max-delay-ms:10000}") long maxDelayMs,
+            @Value("${app.projection.dlt-suffix:-dlt}") String dltSuffix,
+            ParkingLot parkingLot) {
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+
+        ExponentialBackOff backOff = new ExponentialBackOff(delayMs, multiplier);
+        backOff.setMaxInterval(maxDelayMs);
+        backOff.setMaxAttempts(attempts - 1);
+
+        DeadLetterPublishingRecoverer deadLetter = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + dltSuffix, -1));
+        // estaciona o pedido; só vai para o DLT o que não puder ser estacionado
+        ConsumerRecordRecoverer recoverer = (record, ex) -> {
+            @SuppressWarnings("unchecked")
+            ConsumerRecord<String, String> failed = (ConsumerRecord<String, String>) record;
+            if (!parkingLot.parkFailed(failed, ex.getMessage())) {
+                deadLetter.accept(record, ex);
+            }
+        };
+        factory.setCommonErrorHandler(new DefaultErrorHandler(recoverer, backOff));
+        return factory;
+    }
+}
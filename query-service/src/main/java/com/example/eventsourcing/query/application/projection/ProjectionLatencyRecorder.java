@@ -0,0 +1,146 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latência de ponta a ponta de cada evento projetado, do timestamp do evento até o
+ * commit da linha em pedido_read, quebrada por etapa (histogramas por tipo de evento):
+ * <ul>
+ *   <li>command: início do comando (event_metadata) -> evento</li>
+ *   <li>outbox: evento -> gravação no outbox (created_at)</li>
+ *   <li>kafka: outbox -> timestamp do registro Kafka</li>
+ *   <li>consume: registro Kafka -> consumo pelo query-service</li>
+ *   <li>commit: consumo -> commit da projeção</li>
+ *   <li>total: evento -> commit</li>
+ * </ul>
+ * Por partição, projection.partition.lag é calculado na leitura da métrica: agora menos
+ * o timestamp Kafka do último registro commitado, enquanto o consumer reporta registros
+ * pendentes (kafka.consumer.fetch.manager.records.lag > 0), e 0 quando a partição está
+ * em dia ou não está atribuída a esta instância. Uma partição travada continua
+ * crescendo em vez de congelar no último valor.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionLatencyRecorder {
+
+    private static final String RECORDS_LAG = "kafka.consumer.fetch.manager.records.lag";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, AtomicLong> lastCommitted = new ConcurrentHashMap<>();
+
+    /**
+     * Registra as latências do evento depois do commit da transação corrente.
+     */
+    public void recordAfterCommit(ProjectionEvent event, Instant eventTimestamp) {
+        TransactionHooks.afterCommit(() -> record(event, eventTimestamp, System.currentTimeMillis()));
+    }
+
+    private void record(ProjectionEvent event, Instant eventTimestamp, long committedAt) {
+        String type = event.eventType();
+        long eventAt = eventTimestamp != null ? eventTimestamp.toEpochMilli() : -1;
+        if (eventAt >= 0) {
+            timer(type, "total").record(elapsed(eventAt, committedAt));
+        }
+
+        ProjectionEvent.Origin origin = event.origin();
+        if (origin == null) {
+            return; // catch-up/replay pelo event_store: sem etapas de mensageria
+        }
+        ProjectionEvent.Trace trace = origin.trace();
+        if (trace != null && trace.commandStartedAt() != null && eventAt >= 0) {
+            timer(type, "command").record(elapsed(trace.commandStartedAt().toEpochMilli(), eventAt));
+        }
+        long outboxAt = origin.outboxCreatedAt() != null ? origin.outboxCreatedAt().toEpochMilli() : -1;
+        if (eventAt >= 0 && outboxAt >= 0) {
+            timer(type, "outbox").record(elapsed(eventAt, outboxAt));
+        }
+        long kafkaFrom = outboxAt >= 0 ? outboxAt : eventAt;
+        if (kafkaFrom >= 0 && origin.kafkaTimestamp() > 0) {
+            timer(type, "kafka").record(elapsed(kafkaFrom, origin.kafkaTimestamp()));
+        }
+        if (origin.kafkaTimestamp() > 0) {
+            timer(type, "consume").record(elapsed(origin.kafkaTimestamp(), origin.consumedAt()));
+            lastCommitted(origin).accumulateAndGet(origin.kafkaTimestamp(), Math::max);
+        }
+        timer(type, "commit").record(elapsed(origin.consumedAt(), committedAt));
+
+        if (trace != null && log.isDebugEnabled()) {
+            long start = trace.commandStartedAt() != null ? trace.commandStartedAt().toEpochMilli() : eventAt;
+            log.debug("⏱️ correlationId={} requestId={} {} v{}: comando->commit {}ms (outbox={}, kafka={}, consumo={})",
+                    trace.correlationId(), trace.requestId(), type, event.version(), committedAt - start,
+                    origin.outboxCreatedAt(), Instant.ofEpochMilli(origin.kafkaTimestamp()),
+                    Instant.ofEpochMilli(origin.consumedAt()));
+        }
+    }
+
+    private Timer timer(String eventType, String stage) {
+        return timers.computeIfAbsent(eventType + ':' + stage, key -> Timer.builder("projection.latency")
+                .description("Latency from the event timestamp to the read model commit, by stage")
+                .tag("event_type", eventType)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry));
+    }
+
+    /**
+     * Timestamp Kafka do último registro commitado da partição (o gauge é registrado no primeiro).
+     */
+    private AtomicLong lastCommitted(ProjectionEvent.Origin origin) {
+        return lastCommitted.computeIfAbsent(new TopicPartition(origin.topic(), origin.partition()), tp -> {
+            AtomicLong timestamp = new AtomicLong();
+            Gauge.builder("projection.partition.lag", tp, this::partitionLagSeconds)
+                    .description("Time since the Kafka timestamp of the last committed record while records are pending")
+                    .tag("topic", tp.topic())
+                    .tag("partition", String.valueOf(tp.partition()))
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            return timestamp;
+        });
+    }
+
+    private double partitionLagSeconds(TopicPartition tp) {
+        AtomicLong committed = lastCommitted.get(tp);
+        if (committed == null || !hasPendingRecords(tp)) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - committed.get()) / 1000.0;
+    }
+
+    /**
+     * true se algum consumer desta instância reporta registros pendentes na partição.
+     */
+    private boolean hasPendingRecords(TopicPartition tp) {
+        for (Gauge recordsLag : meterRegistry.find(RECORDS_LAG)
+                .tag("topic", tp.topic())
+                .tag("partition", String.valueOf(tp.partition()))
+                .gauges()) {
+            if (recordsLag.value() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Duration elapsed(long fromMillis, long toMillis) {
+        // relógios diferentes entre serviços podem dar valores negativos
+        return Duration.ofMillis(Math.max(0, toMillis - fromMillis));
+    }
+}
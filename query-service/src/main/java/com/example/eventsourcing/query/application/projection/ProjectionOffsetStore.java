@@ -0,0 +1,83 @@
+package com.example.eventsourcing.query.application.projection;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offsets do Kafka guardados na tabela projection_offsets, dentro da mesma transação
+ * que grava o read model. Na atribuição de partições o consumidor é posicionado no
+ * maior entre o offset gravado e o commitado no Kafka (registros enviados para
+ * retry/DLT avançam só o do Kafka).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectionOffsetStore {
+
+    private static final String UPSERT_SQL = "INSERT INTO projection_offsets " +
+            "(consumer_group, topic, partition_id, next_offset, updated_at) VALUES (?, ?, ?, ?, now()) " +
+            "ON CONFLICT (consumer_group, topic, partition_id) DO UPDATE " +
+            "SET next_offset = EXCLUDED.next_offset, updated_at = EXCLUDED.updated_at " +
+            "WHERE projection_offsets.next_offset < EXCLUDED.next_offset";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.kafka.consumer.group-id:query-service-group}")
+    private String consumerGroup;
+
+    /**
+     * Grava o offset seguinte ao registro (deve rodar dentro da transação da projeção).
+     */
+    public void store(ConsumerRecord<?, ?> record) {
+        jdbcTemplate.update(UPSERT_SQL, consumerGroup, record.topic(), record.partition(), record.offset() + 1);
+    }
+
+    /**
+     * Grava o offset seguinte ao low-watermark de uma partição (projeção paralela).
+     */
+    public void store(TopicPartition tp, long nextOffset) {
+        jdbcTemplate.update(UPSERT_SQL, consumerGroup, tp.topic(), tp.partition(), nextOffset);
+    }
+
+    /**
+     * Grava, para cada partição do lote, o offset seguinte ao último registro.
+     */
+    public void storeAll(Collection<? extends ConsumerRecord<?, ?>> records) {
+        Map<TopicPartition, Long> next = new HashMap<>();
+        for (ConsumerRecord<?, ?> record : records) {
+            next.merge(new TopicPartition(record.topic(), record.partition()), record.offset() + 1, Math::max);
+        }
+        List<Object[]> args = new ArrayList<>(next.size());
+        next.forEach((tp, offset) -> args.add(new Object[]{consumerGroup, tp.topic(), tp.partition(), offset}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /**
+     * Reposiciona as partições atribuídas quando o offset gravado está à frente do
+     * commitado no Kafka (projeção confirmada no banco, commit do Kafka perdido).
+     */
+    public void seekToStored(Map<TopicPartition, Long> assignments, ConsumerSeekAware.ConsumerSeekCallback callback) {
+        for (Map.Entry<TopicPartition, Long> assignment : assignments.entrySet()) {
+            TopicPartition tp = assignment.getKey();
+            List<Long> stored = jdbcTemplate.queryForList(
+                    "SELECT next_offset FROM projection_offsets WHERE consumer_group = ? AND topic = ? AND partition_id = ?",
+                    Long.class, consumerGroup, tp.topic(), tp.partition());
+            if (!stored.isEmpty() && stored.get(0) > assignment.getValue()) {
+                log.info("↪️ Reposicionando {} no offset gravado {} (Kafka: {})", tp, stored.get(0), assignment.getValue());
+                callback.seek(tp.topic(), tp.partition(), stored.get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.command.domain.pedido.StatusPedido;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.example.eventsourcing.query.application.query.PedidoReadCache;
+import com.example.eventsourcing.query.application.readmodel.EnderecoEntrega;
+import com.example.eventsourcing.query.application.readmodel.ItemPedido;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuild do pedido_read a partir do event_store sem tirar a API do ar:
+ * <ol>
+ *   <li>o event_store é lido em ordem global até a posição atual e distribuído em
+ *       lanes por pedido (virtual threads), que aplicam os eventos em memória;</li>
+ *   <li>cada lane grava seus pedidos com COPY numa tabela sombra sem índices;</li>
+ *   <li>chave primária e índices, lidos do catálogo (pg_indexes), são criados depois
+ *       da carga, em paralelo;</li>
+ *   <li>os eventos gravados durante o rebuild são aplicados na sombra (catch-up) e,
+ *       com o pedido_read bloqueado para escrita, a sombra troca de nome com ele.</li>
+ * </ol>
+ * Enquanto isso a projeção continua gravando no pedido_read atual; depois da troca ela
+ * segue na tabela nova (os handlers são protegidos por versão). O estado de cada lane é
+ * liberado logo depois do seu COPY: o catch-up parte das linhas já gravadas na sombra.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReadModelRebuildService {
+
+    private static final String TABLE = "pedido_read";
+    private static final String SHADOW = "pedido_read_rebuild";
+    private static final String COLUMNS = "id, numero_pedido, cliente_id, cliente_nome, cliente_email, status, " +
+            "valor_total, data_criacao, data_atualizacao, data_cancelamento, observacoes, itens, endereco_entrega, version";
+    private static final int MAX_CATCH_UP_ROUNDS = 10;
+
+    // índices do pedido_read; os que sustentam PK/UNIQUE vêm com a definição da constraint
+    private static final String INDEXES_SQL = "SELECT x.indexname, x.indexdef, pg_get_constraintdef(c.oid) AS constraintdef " +
+            "FROM pg_indexes x " +
+            "LEFT JOIN pg_constraint c ON c.conname = x.indexname AND c.conrelid = CAST(? AS regclass) " +
+            "AND c.contype IN ('p', 'u') " +
+            "WHERE x.schemaname = current_schema() AND x.tablename = ? " +
+            "ORDER BY x.indexname";
+
+    // "CREATE [UNIQUE] INDEX nome ON [ONLY] schema.tabela ..." -> mesmo índice na sombra
+    private static final Pattern INDEX_TARGET = Pattern.compile("^(CREATE (?:UNIQUE )?INDEX )\\S+ ON (?:ONLY )?\\S+ ");
+
+    private static final TypeReference<List<ItemPedido>> ITENS = new TypeReference<>() {
+    };
+
+    private final EventStoreReader eventStoreReader;
+    private final OutboxRecordDecoder decoder;
+    private final PedidoProjectionHandler pedidoProjectionHandler;
+    private final ProjectedVersionIndex versionIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProjectionCheckpointStore checkpointStore;
+    private final PedidoReadCache cache;
+
+    @Value("${app.projection.rebuild.workers:8}")
+    private int workers;
+
+    @Value("${app.projection.rebuild.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${app.projection.rebuild.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.projection.rebuild.catch-up-overlap:1000}")
+    private long catchUpOverlap;
+
+    @Value("${app.projection.rebuild.swap-threshold:500}")
+    private long swapThreshold;
+
+    @Value("${app.projection.rebuild.swap-lock-timeout-ms:500}")
+    private long swapLockTimeoutMs;
+
+    @Value("${app.projection.rebuild.swap-attempts:10}")
+    private int swapAttempts;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Job job;
+
+    /**
+     * Inicia o rebuild em background; vazio se já existe um em andamento.
+     */
+    public Optional<RebuildStatus> start() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        Job current = new Job();
+        job = current;
+        executor.execute(() -> run(current));
+        return Optional.of(current.status());
+    }
+
+    public Optional<RebuildStatus> status() {
+        Job current = job;
+        return current != null ? Optional.of(current.status()) : Optional.empty();
+    }
+
+    private void run(Job job) {
+        try {
+            long position = eventStoreReader.maxId();
+            log.info("🏗️ Rebuild do read model iniciado até a posição {} com {} lanes", position, workers);
+
+            List<Index> indexes = readIndexes();
+            String comment = jdbcTemplate.queryForObject(
+                    "SELECT obj_description(CAST(? AS regclass), 'pg_class')", String.class, TABLE);
+
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW);
+            jdbcTemplate.execute("CREATE TABLE " + SHADOW + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING COMMENTS)");
+
+            job.phase = "LOADING";
+            List<Lane> lanes = load(job, position);
+
+            job.phase = "INDEXING";
+            createIndexes(indexes);
+
+            // eventos gravados durante a carga/indexação, até sobrar pouco para a troca
+            job.phase = "CATCHING_UP";
+            long latest = eventStoreReader.maxId();
+            while (latest - position > swapThreshold && job.rounds < MAX_CATCH_UP_ROUNDS) {
+                catchUp(job, lanes, position, latest);
+                position = latest;
+                latest = eventStoreReader.maxId();
+                job.rounds++;
+            }
+
+            job.phase = "SWAPPING";
+            swap(job, lanes, indexes, comment, position);
+            job.phase = "COMPLETED";
+            log.info("✅ Rebuild do read model concluído: {} pedidos, {} eventos em {} ms",
+                    job.aggregates.get(), job.events.get(), System.currentTimeMillis() - job.startedAt.toEpochMilli());
+        } catch (Exception e) {
+            log.error("❌ Rebuild do read model falhou; o {} atual foi mantido", TABLE, e);
+            job.phase = "FAILED";
+            job.error = e.getMessage();
+            dropShadow();
+        } finally {
+            job.finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private void dropShadow() {
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW);
+        } catch (Exception e) {
+            log.warn("⚠️ Não foi possível remover {}: {}", SHADOW, e.getMessage());
+        }
+    }
+
+    /**
+     * Distribui o event_store pelas lanes (mesmo pedido, mesma lane, em ordem) e grava
+     * o estado final de cada lane com COPY, em paralelo. Cada lane solta os pedidos
+     * assim que o seu COPY termina.
+     */
+    private List<Lane> load(Job job, long position) throws Exception {
+        List<Lane> lanes = new ArrayList<>(workers);
+        List<Future<?>> folding = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Lane lane = new Lane(queueCapacity);
+            lanes.add(lane);
+            folding.add(executor.submit(() -> lane.fold(job)));
+        }
+
+        try {
+            eventStoreReader.forEachUpTo(position, fetchSize, (aggregateId, stored) -> {
+                job.events.incrementAndGet();
+                laneOf(lanes, aggregateId).put(new LaneEvent(aggregateId, stored));
+            });
+        } finally {
+            lanes.forEach(lane -> lane.put(LaneEvent.END));
+        }
+        for (Future<?> future : folding) {
+            future.get();
+        }
+
+        List<Future<?>> copying = new ArrayList<>(workers);
+        for (Lane lane : lanes) {
+            copying.add(executor.submit(() -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    job.rowsLoaded.addAndGet(copy(connection, lane.state.values()));
+                }
+                job.aggregates.addAndGet(lane.state.size());
+                lane.release();
+                return null;
+            }));
+        }
+        for (Future<?> future : copying) {
+            future.get();
+        }
+        log.info("📥 {} eventos aplicados e {} pedidos carregados em {}", job.events.get(), job.rowsLoaded.get(), SHADOW);
+        return lanes;
+    }
+
+    /**
+     * Índices atuais do pedido_read, com o nome que cada um recebe na sombra (nomes de
+     * índice são únicos no schema).
+     */
+    private List<Index> readIndexes() {
+        List<Index> indexes = jdbcTemplate.query(INDEXES_SQL, (rs, rowNum) -> new Index(rs.getString("indexname"),
+                shadowIndex(rs.getString("indexname")), rs.getString("indexdef"), rs.getString("constraintdef")), TABLE, TABLE);
+        if (indexes.stream().noneMatch(index -> index.constraint() != null && index.constraint().startsWith("PRIMARY KEY"))) {
+            throw new IllegalStateException("No primary key found on " + TABLE);
+        }
+        return indexes;
+    }
+
+    private void createIndexes(List<Index> indexes) throws Exception {
+        long start = System.currentTimeMillis();
+        // constraints primeiro (a PK é usada pelo DELETE do catch-up)
+        for (Index index : indexes) {
+            if (index.constraint() != null) {
+                jdbcTemplate.execute("ALTER TABLE " + SHADOW + " ADD CONSTRAINT " + index.shadowName() + " " + index.constraint());
+            }
+        }
+
+        List<Future<?>> building = new ArrayList<>(indexes.size());
+        for (Index index : indexes) {
+            if (index.constraint() == null) {
+                building.add(executor.submit(() -> jdbcTemplate.execute(shadowDefinition(index))));
+            }
+        }
+        for (Future<?> future : building) {
+            future.get();
+        }
+        jdbcTemplate.execute("ANALYZE " + SHADOW);
+        log.info("🗂️ Índices de {} criados em {} ms", SHADOW, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Aplica os eventos dos pedidos alterados depois da posição sobre as linhas da sombra
+     * e regrava esses pedidos. A busca começa catch-up-overlap posições antes porque
+     * ids do BIGSERIAL podem ser confirmados fora de ordem; reler é inofensivo, já que
+     * os eventos são buscados pela versão de cada pedido. Como parte sempre da sombra,
+     * um catch-up desfeito (rollback da troca) pode simplesmente ser repetido.
+     */
+    private void catchUp(Job job, List<Lane> lanes, long position, long upTo) {
+        List<UUID> aggregateIds = eventStoreReader.findAggregateIdsBetween(Math.max(0, position - catchUpOverlap), upTo);
+        if (aggregateIds.isEmpty()) {
+            return;
+        }
+        Map<UUID, PedidoReadModel> rows = findShadowRows(aggregateIds);
+        List<PedidoReadModel> changed = new ArrayList<>();
+        for (UUID aggregateId : aggregateIds) {
+            Lane lane = laneOf(lanes, aggregateId);
+            PedidoReadModel current = rows.get(aggregateId);
+            if (current != null) {
+                lane.state.put(aggregateId, current);
+            }
+            long version = current != null ? current.getVersion() : 0L;
+            List<EventStoreReader.StoredEvent> missing = eventStoreReader.findEventsAfter(aggregateId, version);
+            missing.forEach(stored -> lane.apply(job, aggregateId, stored));
+            PedidoReadModel updated = lane.state.remove(aggregateId);
+            if (updated != null && (current == null || updated.getVersion() > current.getVersion())) {
+                changed.add(updated);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM " + SHADOW + " WHERE id = ANY(?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid",
+                            changed.stream().map(PedidoReadModel::getId).toArray(UUID[]::new))));
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                copy(connection, changed);
+            } catch (Exception e) {
+                throw new IllegalStateException("COPY into " + SHADOW + " failed", e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+        log.info("🔄 Catch-up do rebuild até a posição {}: {} pedidos atualizados", upTo, changed.size());
+    }
+
+    /**
+     * Troca a sombra pelo pedido_read numa transação. O bloqueio EXCLUSIVE segura a
+     * projeção (as leituras seguem) enquanto o último catch-up é aplicado. DROP e RENAME
+     * exigem ACCESS EXCLUSIVE, que bloqueia também as leituras: ele só é pedido no fim,
+     * com lock_timeout curto, para que uma consulta longa não deixe as demais na fila
+     * atrás da troca. Se o tempo estourar, a transação inteira é desfeita e tentada de novo.
+     */
+    private void swap(Job job, List<Lane> lanes, List<Index> indexes, String comment, long position) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN EXCLUSIVE MODE");
+                    long latest = eventStoreReader.maxId();
+                    catchUp(job, lanes, position, latest);
+
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + swapLockTimeoutMs);
+                    jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+                    jdbcTemplate.execute("DROP TABLE " + TABLE);
+                    jdbcTemplate.execute("ALTER TABLE " + SHADOW + " RENAME TO " + TABLE);
+                    indexes.forEach(index ->
+                            jdbcTemplate.execute("ALTER INDEX " + index.shadowName() + " RENAME TO " + index.name()));
+                    if (comment != null) {
+                        jdbcTemplate.execute("COMMENT ON TABLE " + TABLE + " IS '" + comment.replace("'", "''") + "'");
+                    }
+
+                    checkpointStore.store(latest);
+
+                    // índice de versões volta a ser aquecido a partir da tabela nova
+                    versionIndex.resetAfterCommit();
+                    cache.invalidateAllAfterCommit();
+                });
+                break;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= swapAttempts) {
+                    throw e;
+                }
+                log.warn("⏳ Troca do {} não obteve o bloqueio em {} ms (tentativa {}/{}); tentando de novo",
+                        TABLE, swapLockTimeoutMs, attempt, swapAttempts);
+                sleep(swapLockTimeoutMs);
+            }
+        }
+        versionIndex.warm();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rebuild interrupted", e);
+        }
+    }
+
+    private Map<UUID, PedidoReadModel> findShadowRows(List<UUID> aggregateIds) {
+        Map<UUID, PedidoReadModel> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + SHADOW + " WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", aggregateIds.toArray(UUID[]::new))),
+                rs -> {
+                    PedidoReadModel model = readRow(rs);
+                    rows.put(model.getId(), model);
+                });
+        return rows;
+    }
+
+    private PedidoReadModel readRow(ResultSet rs) throws SQLException {
+        try {
+            PedidoReadModel model = new PedidoReadModel();
+            model.setId(rs.getObject("id", UUID.class));
+            model.setNumeroPedido(rs.getString("numero_pedido"));
+            model.setClienteId(rs.getObject("cliente_id", UUID.class));
+            model.setClienteNome(rs.getString("cliente_nome"));
+            model.setClienteEmail(rs.getString("cliente_email"));
+            model.setStatus(StatusPedido.valueOf(rs.getString("status")));
+            model.setValorTotal(rs.getBigDecimal("valor_total"));
+            model.setDataCriacao(toInstant(rs.getTimestamp("data_criacao")));
+            model.setDataAtualizacao(toInstant(rs.getTimestamp("data_atualizacao")));
+            model.setDataCancelamento(toInstant(rs.getTimestamp("data_cancelamento")));
+            model.setObservacoes(rs.getString("observacoes"));
+            String itens = rs.getString("itens");
+            model.setItens(itens != null ? objectMapper.readValue(itens, ITENS) : null);
+            String endereco = rs.getString("endereco_entrega");
+            model.setEnderecoEntrega(endereco != null ? objectMapper.readValue(endereco, EnderecoEntrega.class) : null);
+            model.setVersion(rs.getLong("version"));
+            return model;
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to read " + SHADOW + " row", e);
+        }
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * Grava os pedidos com COPY (CSV) na sombra, pela conexão informada.
+     */
+    private long copy(Connection connection, Collection<PedidoReadModel> readModels) throws Exception {
+        if (readModels.isEmpty()) {
+            return 0;
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        String sql = "COPY " + SHADOW + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, sql), StandardCharsets.UTF_8), 1 << 16)) {
+            for (PedidoReadModel model : readModels) {
+                writeRow(writer, model);
+            }
+        }
+        return readModels.size();
+    }
+
+    private void writeRow(Writer writer, PedidoReadModel model) throws IOException {
+        writer.write(csv(model.getId()));
+        writer.write(',');
+        writer.write(csv(model.getNumeroPedido()));
+        writer.write(',');
+        writer.write(csv(model.getClienteId()));
+        writer.write(',');
+        writer.write(csv(model.getClienteNome()));
+        writer.write(',');
+        writer.write(csv(model.getClienteEmail()));
+        writer.write(',');
+        writer.write(csv(model.getStatus() != null ? model.getStatus().name() : null));
+        writer.write(',');
+        writer.write(csv(model.getValorTotal() != null ? model.getValorTotal().toPlainString() : null));
+        writer.write(',');
+        writer.write(csv(model.getDataCriacao()));
+        writer.write(',');
+        writer.write(csv(model.getDataAtualizacao()));
+        writer.write(',');
+        writer.write(csv(model.getDataCancelamento()));
+        writer.write(',');
+        writer.write(csv(model.getObservacoes()));
+        writer.write(',');
+        writer.write(csv(model.getItens() != null ? objectMapper.writeValueAsString(model.getItens()) : null));
+        writer.write(',');
+        writer.write(csv(model.getEnderecoEntrega() != null ? objectMapper.writeValueAsString(model.getEnderecoEntrega()) : null));
+        writer.write(',');
+        writer.write(csv(model.getVersion()));
+        writer.write('\n');
+    }
+
+    // no CSV do COPY, campo vazio sem aspas é NULL e "" é texto vazio
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.toString().replace("\"", "\"\"") + '"';
+    }
+
+    private Lane laneOf(List<Lane> lanes, UUID aggregateId) {
+        return lanes.get(Math.floorMod(aggregateId.hashCode(), lanes.size()));
+    }
+
+    private static String shadowIndex(String name) {
+        return name.contains(TABLE) ? name.replace(TABLE, SHADOW) : name + "_rebuild";
+    }
+
+    private static String shadowDefinition(Index index) {
+        Matcher matcher = INDEX_TARGET.matcher(index.definition());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected index definition: " + index.definition());
+        }
+        return matcher.group(1) + index.shadowName() + " ON " + SHADOW + " " + index.definition().substring(matcher.end());
+    }
+
+    /**
+     * Índice do pedido_read; constraint preenchida quando ele sustenta uma PK/UNIQUE.
+     */
+    private record Index(String name, String shadowName, String definition, String constraint) {
+    }
+
+    /**
+     * Estado em memória dos pedidos de uma lane. Só a thread da lane escreve durante a
+     * carga; depois do COPY ele é liberado e o catch-up só o usa pedido a pedido.
+     */
+    private final class Lane {
+
+        private final BlockingQueue<LaneEvent> queue;
+        private Map<UUID, PedidoReadModel> state = new HashMap<>();
+        // pedidos com evento inválido: param na última versão boa, como na projeção
+        private final Set<UUID> failed = new HashSet<>();
+
+        private Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void put(LaneEvent event) {
+            try {
+                queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Rebuild interrupted", e);
+            }
+        }
+
+        // clear() manteria a tabela interna do HashMap do tamanho da carga
+        private void release() {
+            state = new HashMap<>();
+        }
+
+        private Void fold(Job job) throws InterruptedException {
+            for (LaneEvent event = queue.take(); event != LaneEvent.END; event = queue.take()) {
+                apply(job, event.aggregateId(), event.stored());
+            }
+            return null;
+        }
+
+        private void apply(Job job, UUID aggregateId, EventStoreReader.StoredEvent stored) {
+            PedidoReadModel current = state.get(aggregateId);
+            if (failed.contains(aggregateId) || (current != null && current.getVersion() >= stored.version())) {
+                return;
+            }
+            try {
+                Optional<Event> event = decoder.toEvent(new ProjectionEvent(null, aggregateId, stored.version(),
+                        stored.eventType(), stored.eventData(), stored.id()));
+                if (event.isEmpty()) {
+                    return;
+                }
+                PedidoReadModel updated = pedidoProjectionHandler.apply(current, event.get());
+                if (updated != null) {
+                    state.put(aggregateId, updated);
+                }
+            } catch (Exception e) {
+                failed.add(aggregateId);
+                job.failedEvents.incrementAndGet();
+                log.error("❌ Evento {} v{} do pedido {} não pôde ser aplicado no rebuild: {}",
+                        stored.eventType(), stored.version(), aggregateId, e.getMessage());
+            }
+        }
+    }
+
+    private record LaneEvent(UUID aggregateId, EventStoreReader.StoredEvent stored) {
+        private static final LaneEvent END = new LaneEvent(null, null);
+    }
+
+    public record RebuildStatus(String phase, long events, long aggregates, long rowsLoaded, long failedEvents,
+                                int catchUpRounds, Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    private static final class Job {
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong aggregates = new AtomicLong();
+        private final AtomicLong rowsLoaded = new AtomicLong();
+        private final AtomicLong failedEvents = new AtomicLong();
+        private volatile String phase = "STARTING";
+        private volatile int rounds;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private RebuildStatus status() {
+            return new RebuildStatus(phase, events.get(), aggregates.get(), rowsLoaded.get(), failedEvents.get(),
+                    rounds, startedAt, finishedAt, error);
+        }
+    }
+}
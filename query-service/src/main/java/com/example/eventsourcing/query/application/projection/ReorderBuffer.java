@@ -0,0 +1,124 @@
+package com.example.eventsourcing.query.application.projection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Eventos que chegaram adiantados (versão N+2 antes da N+1), guardados por pedido até
+ * o buraco ser preenchido ou o tempo limite disparar o catch-up pelo event_store.
+ * Limitado por pedido e no total; cheio, o evento segue direto para a projeção.
+ */
+final class ReorderBuffer {
+
+    private final int maxPerAggregate;
+    private final int maxEvents;
+    private final Map<UUID, Held> byAggregate = new HashMap<>();
+    private int size;
+
+    ReorderBuffer(int maxPerAggregate, int maxEvents) {
+        this.maxPerAggregate = maxPerAggregate;
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * Guarda o evento; false se não houver espaço.
+     */
+    synchronized boolean hold(ProjectionEvent event, long now) {
+        Held held = byAggregate.get(event.aggregateId());
+        if (held != null && held.events.containsKey(event.version())) {
+            return true; // reentrega de um evento que já está esperando
+        }
+        if (size >= maxEvents || (held != null && held.events.size() >= maxPerAggregate)) {
+            return false;
+        }
+        if (held == null) {
+            held = new Held(now);
+            byAggregate.put(event.aggregateId(), held);
+        }
+        held.events.put(event.version(), event);
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove e devolve os eventos que seguem a versão informada sem buracos.
+     */
+    synchronized List<ProjectionEvent> takeContiguous(UUID aggregateId, long afterVersion) {
+        Held held = byAggregate.get(aggregateId);
+        if (held == null) {
+            return List.of();
+        }
+        int before = held.events.size();
+        // versões antigas que ficaram para trás (já cobertas) são descartadas
+        held.events.headMap(afterVersion, true).clear();
+
+        List<ProjectionEvent> next = new ArrayList<>();
+        long expected = afterVersion + 1;
+        ProjectionEvent event;
+        while ((event = held.events.remove(expected)) != null) {
+            next.add(event);
+            expected++;
+        }
+        size -= before - held.events.size();
+        if (held.events.isEmpty()) {
+            byAggregate.remove(aggregateId);
+        }
+        return next;
+    }
+
+    synchronized List<ProjectionEvent> takeAll(UUID aggregateId) {
+        Held held = byAggregate.remove(aggregateId);
+        if (held == null) {
+            return List.of();
+        }
+        size -= held.events.size();
+        return new ArrayList<>(held.events.values());
+    }
+
+    /**
+     * Devolve ao buffer eventos retirados por uma transação que sofreu rollback.
+     */
+    synchronized void restore(Collection<ProjectionEvent> events, long now) {
+        for (ProjectionEvent event : events) {
+            Held held = byAggregate.computeIfAbsent(event.aggregateId(), id -> new Held(now));
+            if (held.events.putIfAbsent(event.version(), event) == null) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Pedidos com eventos esperando desde antes do corte.
+     */
+    synchronized List<UUID> expired(long cutoff) {
+        List<UUID> expired = new ArrayList<>();
+        byAggregate.forEach((id, held) -> {
+            if (held.since < cutoff) {
+                expired.add(id);
+            }
+        });
+        return expired;
+    }
+
+    synchronized boolean contains(UUID aggregateId) {
+        return byAggregate.containsKey(aggregateId);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private static final class Held {
+        private final long since;
+        private final TreeMap<Long, ProjectionEvent> events = new TreeMap<>();
+
+        private Held(long since) {
+            this.since = since;
+        }
+    }
+}
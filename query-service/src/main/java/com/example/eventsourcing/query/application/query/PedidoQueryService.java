@@ -25,16 +25,17 @@ import java.util.stream.Collectors;
 public class PedidoQueryService {
 
     private final PedidoReadModelRepository readModelRepository;
+    private final PedidoReadCache cache;
 
     public Optional<PedidoDTO> findById(UUID pedidoId) {
         log.debug("Buscando pedido por ID: {}", pedidoId);
-        return readModelRepository.findById(pedidoId)
+        return findCached(pedidoId)
                 .map(PedidoDTO::from);
     }
 
     public Optional<PedidoDTO> findByNumeroPedido(String numeroPedido) {
         log.debug("Buscando pedido por número: {}", numeroPedido);
-        return readModelRepository.findByNumeroPedido(numeroPedido)
+        return findCachedByNumero(numeroPedido)
                 .map(PedidoDTO::from);
     }
 
@@ -72,16 +73,37 @@ public class PedidoQueryService {
 
     public Optional<PedidoCompletoDTO> findPedidoCompletoById(UUID pedidoId) {
         log.debug("Buscando pedido completo por ID: {}", pedidoId);
-        return readModelRepository.findById(pedidoId)
+        return findCached(pedidoId)
                 .map(this::toPedidoCompletoDTO);
     }
 
     public Optional<PedidoCompletoDTO> findPedidoCompletoByNumero(String numeroPedido) {
         log.debug("Buscando pedido completo por número: {}", numeroPedido);
-        return readModelRepository.findByNumeroPedido(numeroPedido)
+        return findCachedByNumero(numeroPedido)
                 .map(this::toPedidoCompletoDTO);
     }
 
+    // read-through: a linha só é lida do banco quando o pedido não está no cache ou mudou
+    private Optional<PedidoReadModel> findCached(UUID pedidoId) {
+        Optional<PedidoReadModel> cached = cache.get(pedidoId, readModelRepository::findVersionById);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<PedidoReadModel> loaded = readModelRepository.findById(pedidoId);
+        loaded.ifPresent(cache::fill);
+        return loaded;
+    }
+
+    private Optional<PedidoReadModel> findCachedByNumero(String numeroPedido) {
+        Optional<UUID> pedidoId = cache.idByNumero(numeroPedido);
+        if (pedidoId.isPresent()) {
+            return findCached(pedidoId.get());
+        }
+        Optional<PedidoReadModel> loaded = readModelRepository.findByNumeroPedido(numeroPedido);
+        loaded.ifPresent(cache::fill);
+        return loaded;
+    }
+
     private PedidoCompletoDTO toPedidoCompletoDTO(PedidoReadModel readModel) {
         return PedidoCompletoDTO.builder()
                 .id(readModel.getId())
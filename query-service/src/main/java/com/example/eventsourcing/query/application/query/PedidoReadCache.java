@@ -0,0 +1,209 @@
+package com.example.eventsourcing.query.application.query;
+
+import com.example.eventsourcing.query.application.infrastructure.TransactionHooks;
+import com.example.eventsourcing.query.application.readmodel.EnderecoEntrega;
+import com.example.eventsourcing.query.application.readmodel.ItemPedido;
+import com.example.eventsourcing.query.application.readmodel.PedidoReadModel;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Cache em memória dos pedidos lidos por id/número, limitado pelo tamanho estimado em
+ * bytes. As entradas guardam a versão: a projeção invalida o pedido após cada commit
+ * deixando um marcador com a versão projetada, e uma leitura do banco só entra no
+ * cache se não for mais antiga que ele (uma leitura feita antes do commit nunca
+ * sobrescreve a projeção mais nova).
+ * <p>
+ * Cada instância só invalida o que ela mesma projeta. Com várias réplicas, um pedido
+ * projetado por outra instância ficaria velho até expirar, por isso cada acerto confere a
+ * versão no banco (SELECT version pela PK, bem mais barato que a linha com os jsonb) e
+ * vira falta se ela mudou. verify-version: false dispensa a consulta quando há uma
+ * réplica só.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PedidoReadCache {
+
+    // estimativas grosseiras de ocupação em bytes (objetos + cabeçalhos)
+    private static final int BASE_WEIGHT = 512;
+    private static final int ITEM_WEIGHT = 160;
+    private static final int MARKER_WEIGHT = 64;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.query.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.query.cache.max-weight-mb:64}")
+    private long maxWeightMb;
+
+    @Value("${app.query.cache.expire-after-write-seconds:300}")
+    private long expireAfterWriteSeconds;
+
+    @Value("${app.query.cache.verify-version:true}")
+    private boolean verifyVersion;
+
+    private Cache<UUID, Entry> byId;
+    private Cache<String, UUID> idByNumero;
+    private Counter hits;
+    private Counter misses;
+    private Counter staleHits;
+    private Counter staleFills;
+
+    @PostConstruct
+    void init() {
+        byId = Caffeine.newBuilder()
+                .maximumWeight(maxWeightMb * 1024 * 1024)
+                .weigher((UUID id, Entry entry) -> entry.weight())
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+        // número -> id nunca muda depois da criação do pedido
+        idByNumero = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxWeightMb * 1024 * 1024 / BASE_WEIGHT))
+                .build();
+
+        hits = Counter.builder("pedido.cache.requests").tag("result", "hit")
+                .description("Pedido lookups served from the cache").register(meterRegistry);
+        misses = Counter.builder("pedido.cache.requests").tag("result", "miss")
+                .description("Pedido lookups that went to the database").register(meterRegistry);
+        staleHits = Counter.builder("pedido.cache.requests").tag("result", "stale")
+                .description("Cached pedidos discarded because the database version changed").register(meterRegistry);
+        staleFills = Counter.builder("pedido.cache.stale.fills")
+                .description("Database reads not cached because the projection was newer")
+                .register(meterRegistry);
+        Gauge.builder("pedido.cache.size", byId, Cache::estimatedSize)
+                .description("Entries in the pedido cache (including invalidation markers)")
+                .register(meterRegistry);
+        Gauge.builder("pedido.cache.weight", byId,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated memory used by the pedido cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("pedido.cache.evictions", byId, cache -> cache.stats().evictionCount())
+                .description("Entries evicted by size or expiration")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Pedido em cache, se a versão dele ainda for a do banco (currentVersion só é
+     * consultado com verify-version ligado).
+     */
+    public Optional<PedidoReadModel> get(UUID id, Function<UUID, Optional<Long>> currentVersion) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Entry entry = byId.getIfPresent(id);
+        if (entry == null || entry.model() == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (verifyVersion && currentVersion.apply(id).orElse(-1L) != entry.version()) {
+            // a leitura do banco que vem a seguir substitui a entrada (versão maior)
+            staleHits.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry.model());
+    }
+
+    public Optional<UUID> idByNumero(String numeroPedido) {
+        return enabled ? Optional.ofNullable(idByNumero.getIfPresent(numeroPedido)) : Optional.empty();
+    }
+
+    /**
+     * Guarda o pedido lido do banco, a menos que a projeção já tenha confirmado uma
+     * versão mais nova. O modelo não deve ser alterado depois de entrar no cache.
+     */
+    public void fill(PedidoReadModel model) {
+        if (!enabled) {
+            return;
+        }
+        long version = model.getVersion();
+        Entry stored = byId.asMap().compute(model.getId(), (id, current) ->
+                current == null || version > current.version() || (version == current.version() && current.model() == null)
+                        ? new Entry(version, model)
+                        : current);
+        if (stored.model() != model && stored.version() > version) {
+            staleFills.increment();
+        }
+        idByNumero.put(model.getNumeroPedido(), model.getId());
+    }
+
+    /**
+     * Pedido projetado na versão informada: invalida após o commit, deixando o marcador
+     * de versão para barrar leituras antigas que ainda estejam em andamento.
+     */
+    public void evictAfterCommit(UUID id, long version) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> byId.asMap().compute(id, (key, current) ->
+                    current != null && current.version() >= version ? current : new Entry(version, null)));
+        }
+    }
+
+    /**
+     * Pedido recém-criado (a linha gravada é exatamente este modelo): entra no cache após o commit.
+     */
+    public void putAfterCommit(PedidoReadModel model) {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> fill(model));
+        }
+    }
+
+    /**
+     * Read model substituído por inteiro (rebuild).
+     */
+    public void invalidateAllAfterCommit() {
+        if (enabled) {
+            TransactionHooks.afterCommit(() -> {
+                byId.invalidateAll();
+                log.info("🧹 Cache de pedidos esvaziado");
+            });
+        }
+    }
+
+    /**
+     * model nulo: marcador de invalidação (pedido projetado na versão, ainda não relido).
+     */
+    private record Entry(long version, PedidoReadModel model) {
+
+        private int weight() {
+            if (model == null) {
+                return MARKER_WEIGHT;
+            }
+            int weight = BASE_WEIGHT + chars(model.getNumeroPedido()) + chars(model.getClienteNome())
+                    + chars(model.getClienteEmail()) + chars(model.getObservacoes());
+            if (model.getItens() != null) {
+                for (ItemPedido item : model.getItens()) {
+                    weight += ITEM_WEIGHT + chars(item.produtoNome()) + chars(item.produtoDescricao());
+                }
+            }
+            EnderecoEntrega endereco = model.getEnderecoEntrega();
+            if (endereco != null) {
+                weight += BASE_WEIGHT / 2 + chars(endereco.getLogradouro()) + chars(endereco.getComplemento())
+                        + chars(endereco.getBairro()) + chars(endereco.getCidade())
+                        + chars(endereco.getPontoReferencia());
+            }
+            return weight;
+        }
+
+        private static int chars(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.eventsourcing.query.web;
+
+import com.example.eventsourcing.query.application.projection.DltReplayService;
+import com.example.eventsourcing.query.application.projection.ParkingLot;
+import com.example.eventsourcing.query.application.projection.ProjectionEventProjector;
+import com.example.eventsourcing.query.application.projection.ReadModelRebuildService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/admin/projection")
+@RequiredArgsConstructor
+public class ProjectionAdminController {
+
+    private final ParkingLot parkingLot;
+    private final ProjectionEventProjector projector;
+    private final DltReplayService dltReplayService;
+    private final ReadModelRebuildService rebuildService;
+
+    /**
+     * Pedidos estacionados, com a quantidade de eventos e o erro que causou a parada.
+     */
+    @GetMapping("/parked")
+    public ResponseEntity<List<ParkingLot.ParkedAggregate>> listarEstacionados() {
+        return ResponseEntity.ok(parkingLot.summary());
+    }
+
+    @GetMapping("/parked/{aggregateId}")
+    public ResponseEntity<List<ParkedEventDTO>> eventosEstacionados(@PathVariable UUID aggregateId) {
+        List<ParkedEventDTO> eventos = parkingLot.findParked(aggregateId).stream()
+                .map(event -> new ParkedEventDTO(event.version(), event.eventType(), event.outboxEventId()))
+                .toList();
+        return eventos.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(eventos);
+    }
+
+    /**
+     * Reaplica o pedido (depois de corrigido) a partir do event_store e o libera.
+     */
+    @PostMapping("/parked/{aggregateId}/replay")
+    public ResponseEntity<Integer> replay(@PathVariable UUID aggregateId) {
+        if (parkingLot.findParked(aggregateId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(projector.replayParked(aggregateId));
+    }
+
+    /**
+     * Reprocessa um intervalo do DLT (filtros opcionais: from/to, eventType, aggregateId)
+     * em background, com limite de eventos por segundo. Devolve o job para acompanhamento.
+     */
+    @PostMapping("/dlt/replay")
+    public ResponseEntity<DltReplayService.ReplayStatus> replayDlt(@RequestBody DltReplayService.ReplayRequest request) {
+        return ResponseEntity.accepted().body(dltReplayService.start(request));
+    }
+
+    @GetMapping("/dlt/replay")
+    public ResponseEntity<List<DltReplayService.ReplayStatus>> listarReplaysDlt() {
+        return ResponseEntity.ok(dltReplayService.list());
+    }
+
+    @GetMapping("/dlt/replay/{jobId}")
+    public ResponseEntity<DltReplayService.ReplayStatus> progressoReplayDlt(@PathVariable UUID jobId) {
+        return ResponseEntity.of(dltReplayService.status(jobId));
+    }
+
+    @PostMapping("/dlt/replay/{jobId}/cancel")
+    public ResponseEntity<Void> cancelarReplayDlt(@PathVariable UUID jobId) {
+        return dltReplayService.cancel(jobId) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Reconstrói o pedido_read a partir do event_store numa tabela sombra e troca as
+     * tabelas no final; a API continua respondendo com o read model atual até lá.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<ReadModelRebuildService.RebuildStatus> rebuild() {
+        return rebuildService.start()
+                .map(status -> ResponseEntity.accepted().body(status))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    @GetMapping("/rebuild")
+    public ResponseEntity<ReadModelRebuildService.RebuildStatus> progressoRebuild() {
+        return ResponseEntity.of(rebuildService.status());
+    }
+
+    public record ParkedEventDTO(long version, String eventType, UUID outboxEventId) {
+    }
+}
@@ -0,0 +1,13 @@
+-- Offsets do Kafka gravados na mesma transação das projeções
+CREATE TABLE projection_offsets (
+    consumer_group VARCHAR(255) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    partition_id INT NOT NULL,
+    next_offset BIGINT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (consumer_group, topic, partition_id)
+);
+
+COMMENT ON TABLE projection_offsets IS 'Próximo offset a consumir por partição, gravado junto com o read model';
+COMMENT ON COLUMN projection_offsets.next_offset IS 'Offset do último registro projetado + 1';
@@ -0,0 +1,17 @@
+-- Eventos estacionados de pedidos cuja projeção falhou (parking lot)
+CREATE TABLE projection_parked_events (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_id UUID NOT NULL,
+    version BIGINT NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    outbox_event_id UUID,
+    event_store_id BIGINT,
+    payload TEXT,
+    error TEXT,
+    parked_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_projection_parked_aggregate_version UNIQUE (aggregate_id, version)
+);
+
+COMMENT ON TABLE projection_parked_events IS 'Eventos de pedidos estacionados após falha, reaplicados via /api/admin/projection/parked';
+COMMENT ON COLUMN projection_parked_events.error IS 'Erro da falha que estacionou o pedido (só no primeiro evento)';
@@ -0,0 +1,9 @@
+-- Posição global (event_store.id) até onde cada projeção já foi aplicada
+CREATE TABLE projection_checkpoints (
+    projection_name VARCHAR(100) PRIMARY KEY,
+    last_event_id BIGINT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE projection_checkpoints IS 'Checkpoint de cada projeção no event_store, usado no catch-up da subida';
+COMMENT ON COLUMN projection_checkpoints.last_event_id IS 'Maior event_store.id projetado';
@@ -0,0 +1,14 @@
+-- Eventos retidos no buffer de reordenação, gravados na mesma transação do offset
+CREATE TABLE projection_held_events (
+    aggregate_id UUID NOT NULL,
+    version BIGINT NOT NULL,
+    outbox_event_id UUID,
+    held_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (aggregate_id, version)
+);
+
+CREATE INDEX idx_projection_held_events_held_at ON projection_held_events (held_at);
+
+COMMENT ON TABLE projection_held_events IS 'Eventos adiantados aguardando versões anteriores; o offset já passou deles';
+COMMENT ON COLUMN projection_held_events.held_at IS 'Linhas antigas (instância que caiu) são recuperadas pelo catch-up do event_store';
@@ -0,0 +1,6 @@
+-- Agenda de reenvio dos ACKs pendentes (backoff exponencial)
+ALTER TABLE outbox_pending_ack
+    ADD COLUMN next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX idx_outbox_pending_ack_next_attempt_at ON outbox_pending_ack (next_attempt_at);
+CREATE INDEX idx_outbox_pending_ack_created_at ON outbox_pending_ack (created_at);
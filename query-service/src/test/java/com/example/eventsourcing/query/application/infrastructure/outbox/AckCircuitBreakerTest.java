@@ -0,0 +1,86 @@
+package com.example.eventsourcing.query.application.infrastructure.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AckCircuitBreakerTest {
+
+    @Test
+    void staysClosedBelowThreshold() {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(3, Duration.ofMinutes(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(3, Duration.ofMinutes(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(3, Duration.ofMinutes(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        // as falhas precisam ser consecutivas
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void halfOpenLetsSingleProbeThroughPerWindow() throws InterruptedException {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(1, Duration.ofMillis(200));
+        breaker.onFailure();
+        assertThat(breaker.allowRequest()).isFalse();
+
+        Thread.sleep(300);
+
+        assertThat(breaker.allowRequest()).isTrue();
+        // a janela recomeça com a chamada de teste: as demais continuam bloqueadas
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void failedProbeKeepsCircuitOpen() throws InterruptedException {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(1, Duration.ofMillis(200));
+        breaker.onFailure();
+        Thread.sleep(300);
+        assertThat(breaker.allowRequest()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.allowRequest()).isFalse();
+        Thread.sleep(300);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void successfulProbeClosesCircuit() throws InterruptedException {
+        AckCircuitBreaker breaker = new AckCircuitBreaker(1, Duration.ofMillis(200));
+        breaker.onFailure();
+        Thread.sleep(300);
+        assertThat(breaker.allowRequest()).isTrue();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+}
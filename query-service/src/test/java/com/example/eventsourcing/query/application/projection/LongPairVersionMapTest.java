@@ -0,0 +1,109 @@
+package com.example.eventsourcing.query.application.projection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongPairVersionMapTest {
+
+    @Test
+    void returnsZeroForMissingKey() {
+        LongPairVersionMap map = new LongPairVersionMap(4);
+
+        assertThat(map.get(1L, 2L)).isZero();
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void putMaxKeepsHighestVersion() {
+        LongPairVersionMap map = new LongPairVersionMap(4);
+
+        map.putMax(1L, 2L, 5);
+        map.putMax(1L, 2L, 3);
+        assertThat(map.get(1L, 2L)).isEqualTo(5);
+
+        map.putMax(1L, 2L, 7);
+        assertThat(map.get(1L, 2L)).isEqualTo(7);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresNonPositiveVersions() {
+        LongPairVersionMap map = new LongPairVersionMap(4);
+
+        map.putMax(1L, 2L, 0);
+        map.putMax(3L, 4L, -1);
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(1L, 2L)).isZero();
+        assertThat(map.get(3L, 4L)).isZero();
+    }
+
+    @Test
+    void keepsCollidingKeysApart() {
+        // msb ^ rotl(lsb, 32) é igual para os dois pares: mesmo hash, sondagem linear
+        long msb = 0x1234_5678_9abc_def0L;
+        LongPairVersionMap map = new LongPairVersionMap(4);
+
+        map.putMax(msb, 0L, 1);
+        map.putMax(0L, Long.rotateRight(msb, 32), 2);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(msb, 0L)).isEqualTo(1);
+        assertThat(map.get(0L, Long.rotateRight(msb, 32))).isEqualTo(2);
+    }
+
+    @Test
+    void keepsAllEntriesAcrossRehashes() {
+        LongPairVersionMap map = new LongPairVersionMap(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            map.putMax(id.getMostSignificantBits(), id.getLeastSignificantBits(), i + 1);
+        }
+
+        assertThat(map.size()).isEqualTo(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            assertThat(map.get(id.getMostSignificantBits(), id.getLeastSignificantBits())).isEqualTo(i + 1);
+        }
+    }
+
+    @Test
+    void keepsAllEntriesWithSequentialKeys() {
+        // msb fixo e lsb sequencial, como ids gerados em sequência
+        LongPairVersionMap map = new LongPairVersionMap(16);
+        for (long lsb = 1; lsb <= 5_000; lsb++) {
+            map.putMax(42L, lsb, lsb);
+        }
+
+        assertThat(map.size()).isEqualTo(5_000);
+        for (long lsb = 1; lsb <= 5_000; lsb++) {
+            assertThat(map.get(42L, lsb)).isEqualTo(lsb);
+        }
+    }
+
+    @Test
+    void mergeIntoKeepsHighestVersionPerKey() {
+        LongPairVersionMap source = new LongPairVersionMap(4);
+        source.putMax(1L, 1L, 3);
+        source.putMax(2L, 2L, 1);
+        source.putMax(3L, 3L, 4);
+
+        LongPairVersionMap target = new LongPairVersionMap(4);
+        target.putMax(1L, 1L, 5);
+        target.putMax(2L, 2L, 0);
+
+        source.mergeInto(target);
+
+        assertThat(target.size()).isEqualTo(3);
+        assertThat(target.get(1L, 1L)).isEqualTo(5);
+        assertThat(target.get(2L, 2L)).isEqualTo(1);
+        assertThat(target.get(3L, 3L)).isEqualTo(4);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.eventsourcing.query.application.projection;
+
+import com.example.eventsourcing.command.domain.Event;
+import com.example.eventsourcing.command.domain.pedido.events.PedidoConfirmado;
+import com.example.eventsourcing.query.application.infrastructure.eventstore.EventStoreReader;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxRecordDecoderTest {
+
+    private static final UUID OUTBOX_ID = UUID.fromString("d24b7e19-6a3c-4f85-8b1d-3e9c5a7f2b60");
+    private static final UUID PEDIDO_ID = UUID.fromString("0b8e7f52-91c4-4d2a-b6e3-5a7c9d1f2e48");
+
+    private static final String PAYLOAD = "{\"@class\":\"" + PedidoConfirmado.class.getName() + "\","
+            + "\"version\":2,\"timestamp\":\"2026-10-12T14:05:11.207344Z\","
+            + "\"aggregateId\":\"" + PEDIDO_ID + "\"}";
+
+    private static final String METADATA = "{\"requestId\":\"req-b82e04d9\","
+            + "\"causationId\":\"6b1d8e3f-2a7c-4d95-9e4b-1f8a3c6d2e79\","
+            + "\"correlationId\":\"9a4e1c7b-3f2d-4e68-b1a9-5c7d2e8f4a16\","
+            + "\"commandStartedAt\":\"2026-10-12T14:05:11.193580Z\"}";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final OutboxRecordDecoder decoder = new OutboxRecordDecoder(objectMapper, null);
+
+    @Test
+    void decodesDebeziumInsertEnvelope() throws Exception {
+        ConsumerRecord<String, String> record = record("outbox.event_outbox", null, envelope("c", after()));
+
+        ProjectionEvent event = decoder.decodeEnvelope(record).orElseThrow();
+
+        assertThat(event.outboxEventId()).isEqualTo(OUTBOX_ID);
+        assertThat(event.aggregateId()).isEqualTo(PEDIDO_ID);
+        assertThat(event.version()).isEqualTo(2);
+        assertThat(event.eventType()).isEqualTo("PedidoConfirmado");
+        assertThat(event.payload()).isEqualTo(PAYLOAD);
+        assertThat(event.eventStoreId()).isEqualTo(482390L);
+        assertThat(event.origin().topic()).isEqualTo("outbox.event_outbox");
+        assertThat(event.origin().outboxCreatedAt()).isEqualTo(Instant.parse("2026-10-12T14:05:11.208762Z"));
+
+        ProjectionEvent.Trace trace = event.origin().trace();
+        assertThat(trace.correlationId()).isEqualTo("9a4e1c7b-3f2d-4e68-b1a9-5c7d2e8f4a16");
+        assertThat(trace.causationId()).isEqualTo("6b1d8e3f-2a7c-4d95-9e4b-1f8a3c6d2e79");
+        assertThat(trace.requestId()).isEqualTo("req-b82e04d9");
+        assertThat(trace.commandStartedAt()).isEqualTo(Instant.parse("2026-10-12T14:05:11.193580Z"));
+    }
+
+    @Test
+    void ignoresTombstonesAndNonInsertOperations() throws Exception {
+        assertThat(decoder.decodeEnvelope(record("outbox.event_outbox", null, null))).isEmpty();
+        // o relay marca a linha como PROCESSED: updates e deletes não são eventos novos
+        assertThat(decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("u", after())))).isEmpty();
+        assertThat(decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("d", null)))).isEmpty();
+    }
+
+    @Test
+    void readsKeysFromPayloadWhenAggregateVersionIsMissing() throws Exception {
+        // linhas gravadas antes da coluna aggregate_version
+        ObjectNode after = after();
+        after.remove("aggregate_version");
+        after.putNull("aggregate_id");
+
+        ProjectionEvent event = decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", after)))
+                .orElseThrow();
+
+        assertThat(event.aggregateId()).isEqualTo(PEDIDO_ID);
+        assertThat(event.version()).isEqualTo(2);
+    }
+
+    @Test
+    void acceptsNumericCreatedAtInMicrosAndMillis() throws Exception {
+        Instant createdAt = Instant.parse("2026-10-12T14:05:11.208762Z");
+
+        ObjectNode micros = after();
+        micros.put("created_at", createdAt.getEpochSecond() * 1_000_000 + createdAt.getNano() / 1_000);
+        assertThat(decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", micros)))
+                .orElseThrow().origin().outboxCreatedAt()).isEqualTo(createdAt);
+
+        ObjectNode millis = after();
+        millis.put("created_at", createdAt.toEpochMilli());
+        assertThat(decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", millis)))
+                .orElseThrow().origin().outboxCreatedAt()).isEqualTo(Instant.ofEpochMilli(createdAt.toEpochMilli()));
+    }
+
+    @Test
+    void invalidMetadataDoesNotBlockDecoding() throws Exception {
+        ObjectNode after = after();
+        after.put("event_metadata", "não é json");
+
+        ProjectionEvent event = decoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", after)))
+                .orElseThrow();
+
+        assertThat(event.origin().trace()).isNull();
+        assertThat(event.version()).isEqualTo(2);
+    }
+
+    @Test
+    void loadsPayloadFromEventStoreInReferenceMode() throws Exception {
+        EventStoreReader eventStoreReader = mock(EventStoreReader.class);
+        when(eventStoreReader.findEventData(482390L)).thenReturn(Optional.of(PAYLOAD));
+        OutboxRecordDecoder referenceDecoder = new OutboxRecordDecoder(objectMapper, eventStoreReader);
+
+        ObjectNode after = after();
+        after.putNull("event_data");
+        ProjectionEvent event = referenceDecoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", after)))
+                .orElseThrow();
+
+        assertThat(event.payload()).isEqualTo(PAYLOAD);
+        assertThat(referenceDecoder.toEvent(event)).get().isInstanceOf(PedidoConfirmado.class);
+    }
+
+    @Test
+    void failsWhenReferencedEventIsMissing() {
+        EventStoreReader eventStoreReader = mock(EventStoreReader.class);
+        when(eventStoreReader.findEventData(482390L)).thenReturn(Optional.empty());
+        OutboxRecordDecoder referenceDecoder = new OutboxRecordDecoder(objectMapper, eventStoreReader);
+
+        ObjectNode after = after();
+        after.putNull("event_data");
+
+        assertThatThrownBy(() -> referenceDecoder.decodeEnvelope(record("outbox.event_outbox", null, envelope("c", after))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void decodesRoutedMessageFromHeaders() throws Exception {
+        RecordHeaders headers = routedHeaders();
+        headers.add("version", bytes("2"));
+        headers.add("createdAt", bytes("2026-10-12T14:05:11.208762Z"));
+        headers.add("metadata", bytes(METADATA));
+
+        ProjectionEvent event = decoder.decodeRouted(record("outbox.event.Pedido", headers, PAYLOAD)).orElseThrow();
+
+        assertThat(event.outboxEventId()).isEqualTo(OUTBOX_ID);
+        assertThat(event.aggregateId()).isEqualTo(PEDIDO_ID);
+        assertThat(event.version()).isEqualTo(2);
+        assertThat(event.eventStoreId()).isEqualTo(482390L);
+        assertThat(event.origin().outboxCreatedAt()).isEqualTo(Instant.parse("2026-10-12T14:05:11.208762Z"));
+        assertThat(event.origin().trace().requestId()).isEqualTo("req-b82e04d9");
+    }
+
+    @Test
+    void readsVersionFromBodyWhenRoutedHeaderIsMissing() throws Exception {
+        ProjectionEvent event = decoder.decodeRouted(record("outbox.event.Pedido", routedHeaders(), PAYLOAD))
+                .orElseThrow();
+
+        assertThat(event.version()).isEqualTo(2);
+        assertThat(event.origin().trace()).isNull();
+    }
+
+    @Test
+    void rejectsRoutedMessageWithoutRequiredHeaders() {
+        RecordHeaders withoutOutboxId = new RecordHeaders();
+        withoutOutboxId.add("eventType", bytes("PedidoConfirmado"));
+
+        assertThatThrownBy(() -> decoder.decodeRouted(record("outbox.event.Pedido", withoutOutboxId, PAYLOAD)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> decoder.decodeRouted(record("outbox.event.Pedido", new RecordHeaders(), PAYLOAD)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void decodeAnyPicksFormatByEventTypeHeader() throws Exception {
+        ProjectionEvent routed = decoder.decodeAny(record("outbox.event.Pedido.DLT", routedHeaders(), PAYLOAD))
+                .orElseThrow();
+        ProjectionEvent envelope = decoder.decodeAny(
+                record("outbox.event_outbox.DLT", new RecordHeaders(), envelope("c", after()))).orElseThrow();
+
+        assertThat(routed.outboxEventId()).isEqualTo(OUTBOX_ID);
+        assertThat(envelope.outboxEventId()).isEqualTo(OUTBOX_ID);
+        assertThat(envelope.eventStoreId()).isEqualTo(482390L);
+    }
+
+    @Test
+    void toEventDeserializesPayloadByEventType() throws Exception {
+        ProjectionEvent event = new ProjectionEvent(OUTBOX_ID, PEDIDO_ID, 2, "PedidoConfirmado", PAYLOAD, 482390L);
+
+        Event domainEvent = decoder.toEvent(event).orElseThrow();
+
+        assertThat(domainEvent).isEqualTo(new PedidoConfirmado(
+                PEDIDO_ID, Instant.parse("2026-10-12T14:05:11.207344Z"), 2L));
+    }
+
+    @Test
+    void toEventIgnoresUnknownEventType() throws Exception {
+        ProjectionEvent event = new ProjectionEvent(OUTBOX_ID, PEDIDO_ID, 2, "PedidoExtraviado", PAYLOAD, 482390L);
+
+        assertThat(decoder.toEvent(event)).isEmpty();
+    }
+
+    private ObjectNode after() {
+        ObjectNode after = objectMapper.createObjectNode();
+        after.put("id", OUTBOX_ID.toString());
+        after.put("aggregate_id", PEDIDO_ID.toString());
+        after.put("aggregate_type", "Pedido");
+        after.put("event_type", "PedidoConfirmado");
+        after.put("event_data", PAYLOAD);
+        after.put("event_metadata", METADATA);
+        after.put("created_at", "2026-10-12T14:05:11.208762Z");
+        after.putNull("processed_at");
+        after.put("status", "PENDING");
+        after.put("event_store_id", 482390L);
+        after.put("aggregate_version", 2L);
+        return after;
+    }
+
+    private String envelope(String op, ObjectNode after) {
+        ObjectNode envelope = objectMapper.createObjectNode();
+        envelope.putNull("before");
+        envelope.set("after", after);
+        envelope.putObject("source").put("connector", "postgresql").put("table", "event_outbox");
+        envelope.put("op", op);
+        envelope.put("ts_ms", 1760277911215L);
+        return envelope.toString();
+    }
+
+    private static RecordHeaders routedHeaders() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("eventType", bytes("PedidoConfirmado"));
+        headers.add("outboxId", bytes(OUTBOX_ID.toString()));
+        headers.add("eventStoreId", bytes("482390"));
+        return headers;
+    }
+
+    private static ConsumerRecord<String, String> record(String topic, RecordHeaders headers, String value) {
+        return new ConsumerRecord<>(topic, 0, 42L, 1760277911215L, TimestampType.CREATE_TIME,
+                -1, -1, PEDIDO_ID.toString(), value,
+                headers != null ? headers : new RecordHeaders(), Optional.empty());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.eventsourcing.query.application.projection;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionWatermarkTest {
+
+    private static final Acknowledgment NOOP = () -> { };
+
+    @Test
+    void releasesEachRecordCompletedInOrder() {
+        PartitionWatermark watermark = new PartitionWatermark();
+        PartitionWatermark.Slot first = watermark.register(10, NOOP);
+        PartitionWatermark.Slot second = watermark.register(11, NOOP);
+
+        assertThat(watermark.complete(first)).isSameAs(first);
+        assertThat(watermark.complete(second)).isSameAs(second);
+        assertThat(watermark.pending()).isZero();
+    }
+
+    @Test
+    void holdsWatermarkUntilOldestRecordCompletes() {
+        PartitionWatermark watermark = new PartitionWatermark();
+        PartitionWatermark.Slot first = watermark.register(10, NOOP);
+        PartitionWatermark.Slot second = watermark.register(11, NOOP);
+        PartitionWatermark.Slot third = watermark.register(12, NOOP);
+
+        // lanes diferentes terminam fora de ordem: nada pode ser confirmado ainda
+        assertThat(watermark.complete(third)).isNull();
+        assertThat(watermark.complete(second)).isNull();
+        assertThat(watermark.pending()).isEqualTo(3);
+
+        // o mais antigo libera o prefixo inteiro, confirmado pelo último slot
+        assertThat(watermark.complete(first)).isSameAs(third);
+        assertThat(watermark.pending()).isZero();
+    }
+
+    @Test
+    void releasesOnlyContiguousPrefix() {
+        PartitionWatermark watermark = new PartitionWatermark();
+        PartitionWatermark.Slot first = watermark.register(10, NOOP);
+        PartitionWatermark.Slot second = watermark.register(11, NOOP);
+        PartitionWatermark.Slot third = watermark.register(12, NOOP);
+        watermark.register(13, NOOP);
+
+        watermark.complete(third);
+
+        assertThat(watermark.complete(first)).isSameAs(first);
+        assertThat(watermark.complete(second)).isSameAs(third);
+        assertThat(watermark.pending()).isEqualTo(1);
+    }
+
+    @Test
+    void nextOffsetIfDoneTreatsOwnSlotAsDone() {
+        PartitionWatermark watermark = new PartitionWatermark();
+        PartitionWatermark.Slot first = watermark.register(10, NOOP);
+        PartitionWatermark.Slot second = watermark.register(11, NOOP);
+        PartitionWatermark.Slot third = watermark.register(12, NOOP);
+        PartitionWatermark.Slot fourth = watermark.register(13, NOOP);
+        watermark.complete(second);
+
+        // first + second (já concluído); third ainda em andamento segura o resto
+        assertThat(watermark.nextOffsetIfDone(first)).isEqualTo(12);
+        // registros anteriores em andamento: o offset não pode ser gravado
+        assertThat(watermark.nextOffsetIfDone(third)).isEqualTo(-1);
+        assertThat(watermark.nextOffsetIfDone(fourth)).isEqualTo(-1);
+        // não altera o estado
+        assertThat(watermark.pending()).isEqualTo(4);
+    }
+
+    @Test
+    void nextOffsetIfDoneReachesEndWhenOthersAreDone() {
+        PartitionWatermark watermark = new PartitionWatermark();
+        PartitionWatermark.Slot first = watermark.register(10, NOOP);
+        PartitionWatermark.Slot second = watermark.register(11, NOOP);
+        PartitionWatermark.Slot third = watermark.register(12, NOOP);
+        watermark.complete(second);
+        watermark.complete(third);
+
+        assertThat(watermark.nextOffsetIfDone(first)).isEqualTo(13);
+        assertThat(watermark.complete(first)).isSameAs(third);
+    }
+}
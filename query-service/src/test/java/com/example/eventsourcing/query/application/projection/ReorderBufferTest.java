@@ -0,0 +1,135 @@
+package com.example.eventsourcing.query.application.projection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReorderBufferTest {
+
+    private static final UUID PEDIDO_A = UUID.fromString("0b8e7f52-91c4-4d2a-b6e3-5a7c9d1f2e48");
+    private static final UUID PEDIDO_B = UUID.fromString("3c1a9e64-7b2d-4f08-a5c3-8e6d1f4b9a27");
+
+    @Test
+    void takeContiguousReturnsOnlyRunWithoutGaps() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 3), 0);
+        buffer.hold(event(PEDIDO_A, 2), 0);
+        buffer.hold(event(PEDIDO_A, 5), 0);
+
+        List<ProjectionEvent> next = buffer.takeContiguous(PEDIDO_A, 1);
+
+        assertThat(next).extracting(ProjectionEvent::version).containsExactly(2L, 3L);
+        // a versão 5 continua esperando a 4
+        assertThat(buffer.size()).isEqualTo(1);
+        assertThat(buffer.contains(PEDIDO_A)).isTrue();
+    }
+
+    @Test
+    void takeContiguousDropsVersionsAlreadyCovered() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 2), 0);
+        buffer.hold(event(PEDIDO_A, 3), 0);
+        buffer.hold(event(PEDIDO_A, 5), 0);
+
+        // read model já está na versão 4 (ex.: gap-fill pelo event_store)
+        List<ProjectionEvent> next = buffer.takeContiguous(PEDIDO_A, 4);
+
+        assertThat(next).extracting(ProjectionEvent::version).containsExactly(5L);
+        assertThat(buffer.size()).isZero();
+        assertThat(buffer.contains(PEDIDO_A)).isFalse();
+    }
+
+    @Test
+    void takeContiguousWithoutNextVersionKeepsEvents() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 4), 0);
+
+        assertThat(buffer.takeContiguous(PEDIDO_A, 2)).isEmpty();
+        assertThat(buffer.takeContiguous(PEDIDO_B, 0)).isEmpty();
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void redeliveredEventIsAcceptedWithoutCountingTwice() {
+        ReorderBuffer buffer = new ReorderBuffer(1, 1);
+
+        assertThat(buffer.hold(event(PEDIDO_A, 3), 0)).isTrue();
+        // reentrega com o buffer cheio: já está guardado, não é recusado
+        assertThat(buffer.hold(event(PEDIDO_A, 3), 10)).isTrue();
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesEventsBeyondPerAggregateLimit() {
+        ReorderBuffer buffer = new ReorderBuffer(2, 100);
+
+        assertThat(buffer.hold(event(PEDIDO_A, 3), 0)).isTrue();
+        assertThat(buffer.hold(event(PEDIDO_A, 4), 0)).isTrue();
+        assertThat(buffer.hold(event(PEDIDO_A, 5), 0)).isFalse();
+        // o limite é por pedido
+        assertThat(buffer.hold(event(PEDIDO_B, 3), 0)).isTrue();
+        assertThat(buffer.size()).isEqualTo(3);
+    }
+
+    @Test
+    void refusesEventsBeyondTotalLimit() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 2);
+
+        assertThat(buffer.hold(event(PEDIDO_A, 3), 0)).isTrue();
+        assertThat(buffer.hold(event(PEDIDO_B, 3), 0)).isTrue();
+        assertThat(buffer.hold(event(PEDIDO_A, 4), 0)).isFalse();
+        assertThat(buffer.size()).isEqualTo(2);
+
+        // espaço liberado volta a ser usado
+        buffer.takeAll(PEDIDO_B);
+        assertThat(buffer.hold(event(PEDIDO_A, 4), 0)).isTrue();
+    }
+
+    @Test
+    void takeAllRemovesEveryEventOfOrderInVersionOrder() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 7), 0);
+        buffer.hold(event(PEDIDO_A, 4), 0);
+        buffer.hold(event(PEDIDO_B, 2), 0);
+
+        assertThat(buffer.takeAll(PEDIDO_A)).extracting(ProjectionEvent::version).containsExactly(4L, 7L);
+        assertThat(buffer.takeAll(PEDIDO_A)).isEmpty();
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void restoreReturnsEventsTakenByRolledBackTransaction() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 2), 0);
+        buffer.hold(event(PEDIDO_A, 3), 0);
+        List<ProjectionEvent> taken = buffer.takeContiguous(PEDIDO_A, 1);
+
+        // uma reentrega da versão 3 chegou antes do rollback: não pode contar duas vezes
+        buffer.hold(event(PEDIDO_A, 3), 5);
+        buffer.restore(taken, 5);
+
+        assertThat(buffer.size()).isEqualTo(2);
+        assertThat(buffer.takeContiguous(PEDIDO_A, 1)).extracting(ProjectionEvent::version).containsExactly(2L, 3L);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void expiredListsOrdersWaitingSinceBeforeCutoff() {
+        ReorderBuffer buffer = new ReorderBuffer(10, 100);
+        buffer.hold(event(PEDIDO_A, 3), 100);
+        buffer.hold(event(PEDIDO_B, 3), 200);
+        // eventos novos não renovam a espera do pedido
+        buffer.hold(event(PEDIDO_A, 4), 300);
+
+        assertThat(buffer.expired(150)).containsExactly(PEDIDO_A);
+        assertThat(buffer.expired(100)).isEmpty();
+        assertThat(buffer.expired(201)).containsExactlyInAnyOrder(PEDIDO_A, PEDIDO_B);
+    }
+
+    private static ProjectionEvent event(UUID aggregateId, long version) {
+        return new ProjectionEvent(UUID.randomUUID(), aggregateId, version, "PedidoAtualizado", "{}", null);
+    }
+}